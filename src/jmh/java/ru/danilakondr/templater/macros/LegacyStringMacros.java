@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ru.danilakondr.templater.macros;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Properties;
+
+/**
+ * Прежняя реализация {@link StringMacros#lookup(String)} (версия 0.6.2):
+ * время определяется при каждом вызове, шаблон <code>DATETIME(...)</code>
+ * разбирается регулярным выражением. Используется для сравнения
+ * производительности с {@link TimeMacros}.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+class LegacyStringMacros {
+    private final Properties props;
+
+    LegacyStringMacros(Properties props) {
+        this.props = props;
+    }
+
+    public String lookup(String s) {
+        Calendar cal = Calendar.getInstance();
+        Date date = cal.getTime();
+
+        if (s.compareTo("YEAR") == 0)
+            return String.format("%04d", cal.get(Calendar.YEAR));
+        if (s.compareTo("DATE") == 0)
+            return SimpleDateFormat.getDateInstance(DateFormat.SHORT)
+                    .format(date);
+        if (s.compareTo("TIME") == 0)
+            return SimpleDateFormat.getTimeInstance(DateFormat.SHORT)
+                    .format(date);
+        if (s.compareTo("DATETIME") == 0)
+            return SimpleDateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT)
+                    .format(date);
+
+        if (s.matches("DATETIME\\((.*?)\\)"))
+            return new SimpleDateFormat(s.replaceAll("DATETIME\\((.*?)\\)", "$1"))
+                    .format(date);
+
+        return props.getProperty(s);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.macros;
+
+import org.apache.commons.text.StringSubstitutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Производительность разрешения строковых макросов: поиск значения в
+ * {@link StringMacros} и подстановка через {@link StringSubstitutor} так
+ * же, как в {@link StringMacroSubstitutor}. Тесты <code>legacy*</code>
+ * измеряют прежнюю реализацию ({@link LegacyStringMacros}), тест
+ * <code>firstLookupDateTime</code> &mdash; первое обращение к макросу
+ * времени в документе.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringMacrosBenchmark {
+    private StringMacros macros;
+    private LegacyStringMacros legacy;
+    private StringSubstitutor substitutor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Properties props = new Properties();
+        for (int i = 0; i < 50; i++)
+            props.setProperty("MACRO_" + i, "Значение макроса " + i);
+        props.setProperty("TITLE", "Отчёт о научно-исследовательской работе");
+        props.setProperty("AUTHOR", "Иванов И. И.");
+
+        macros = new StringMacros();
+        macros.loadFromMap(props);
+        legacy = new LegacyStringMacros(props);
+        substitutor = new StringSubstitutor(macros, "%", "%", '%');
+    }
+
+    @Benchmark
+    public String lookupPlain() {
+        return macros.lookup("TITLE");
+    }
+
+    @Benchmark
+    public String lookupMissing() {
+        return macros.lookup("N_PAGES");
+    }
+
+    @Benchmark
+    public String lookupYear() {
+        return macros.lookup("YEAR");
+    }
+
+    @Benchmark
+    public String lookupDateTime() {
+        return macros.lookup("DATETIME(dd.MM.yyyy HH:mm)");
+    }
+
+    @Benchmark
+    public String firstLookupDateTime() {
+        return new TimeMacros().lookup("DATETIME(dd.MM.yyyy HH:mm)");
+    }
+
+    @Benchmark
+    public String legacyLookupPlain() {
+        return legacy.lookup("TITLE");
+    }
+
+    @Benchmark
+    public String legacyLookupMissing() {
+        return legacy.lookup("N_PAGES");
+    }
+
+    @Benchmark
+    public String legacyLookupYear() {
+        return legacy.lookup("YEAR");
+    }
+
+    @Benchmark
+    public String legacyLookupDateTime() {
+        return legacy.lookup("DATETIME(dd.MM.yyyy HH:mm)");
+    }
+
+    @Benchmark
+    public String substitutePlain() {
+        return substitutor.replace("%TITLE%");
+    }
+
+    @Benchmark
+    public String substituteDateTime() {
+        return substitutor.replace("%DATETIME(dd.MM.yyyy)%");
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.processing;
+
+import com.sun.star.beans.PropertyValue;
+import com.sun.star.style.NumberingType;
+import com.sun.star.text.LabelFollow;
+import com.sun.star.text.PositionAndSpaceMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Производительность {@link NumberingStyleProcessor#processSingleLevel} на
+ * синтетических уровнях нумерации, повторяющих набор свойств, который
+ * возвращает LibreOffice.
+ * <p>
+ * Уровень изменяется на месте, поэтому каждый вызов получает свежую копию
+ * исходного уровня; иначе все вызовы, кроме первого, обрабатывали бы уже
+ * исправленный уровень. Время копирования измеряется отдельно
+ * ({@link #copyLevel()}) и вычитается из результатов.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumberingStyleBenchmark {
+    private NumberingStyleProcessor processor;
+    private PropertyValue[] numbered;
+    private PropertyValue[] bullet;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        processor = new NumberingStyleProcessor();
+        numbered = level(NumberingType.ARABIC);
+        bullet = level(NumberingType.CHAR_SPECIAL);
+    }
+
+    private static PropertyValue property(String name, Object value) {
+        PropertyValue p = new PropertyValue();
+        p.Name = name;
+        p.Value = value;
+        return p;
+    }
+
+    static PropertyValue[] level(short numberingType) {
+        return new PropertyValue[] {
+                property("Adjust", (short) 1),
+                property("ParentNumbering", (short) 1),
+                property("Prefix", ""),
+                property("Suffix", "."),
+                property("ListFormat", "%1%."),
+                property("CharStyleName", ""),
+                property("StartWith", (short) 1),
+                property("PositionAndSpaceMode", PositionAndSpaceMode.LABEL_WIDTH_AND_POSITION),
+                property("LabelFollowedBy", LabelFollow.LISTTAB),
+                property("ListtabStopPosition", 1270),
+                property("FirstLineIndent", -635),
+                property("IndentAt", 1270),
+                property("LeftMargin", 1270),
+                property("SymbolTextDistance", 0),
+                property("FirstLineOffset", -635),
+                property("NumberingType", numberingType),
+                property("BulletId", (short) 0x2022),
+                property("BulletChar", "•"),
+                property("BulletFontName", "OpenSymbol"),
+                property("BulletRelativeSize", (short) 100),
+                property("BulletColor", 0),
+                property("GraphicSize", null),
+                property("VertOrient", (short) 0),
+                property("HeadingStyleName", ""),
+        };
+    }
+
+    private static PropertyValue[] copy(PropertyValue[] level) {
+        PropertyValue[] result = new PropertyValue[level.length];
+        for (int i = 0; i < level.length; i++)
+            result[i] = property(level[i].Name, level[i].Value);
+        return result;
+    }
+
+    @Benchmark
+    public PropertyValue[] copyLevel() {
+        return copy(numbered);
+    }
+
+    @Benchmark
+    public PropertyValue[] numberedLevel() {
+        PropertyValue[] level = copy(numbered);
+        processor.processSingleLevel(1, level);
+        return level;
+    }
+
+    @Benchmark
+    public PropertyValue[] bulletLevel() {
+        PropertyValue[] level = copy(bullet);
+        processor.processSingleLevel(1, level);
+        return level;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.processing;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение производительности {@link StarMathRewriter} с прежней
+ * реализацией на регулярных выражениях ({@link LegacyStarMathFixer}).
+ * Совпадение их результатов проверяется тестом
+ * {@code StarMathRewriterTest}.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StarMathFixerBenchmark {
+    /**
+     * Типичные формулы, которые получаются при преобразовании документов
+     * Pandoc.
+     */
+    private static final Map<String, String> FORMULAS = Map.of(
+            "short", "{ x = 1 }",
+            "long", "{ stack { { f ( x ) } = { sum from { i = 1 } to { n } { a _ { i } x ^ { i } } } # "
+                    + "{ } = { a _ { 1 } x + a _ { 2 } x ^ { 2 } + dotsaxis + a _ { n } x ^ { n } } # "
+                    + "{ } cdot { { 1 } over { n } } - { left ( { x + y } right ) } # "
+                    + "{ } times { left mline { x } right mline } } }",
+            "accents", "{ { x } csup \u0302 + { y } csup \u0303 = { v } csup \u0304 cdot { t } csup \u0307 "
+                    + "- { a } csup \u0308 }",
+            "greek", "{ α + β = γ − Δ φ ( λ ) cdot "
+                    + "𝑥 _ { ω } + 𝜋 ∂ ψ over ∂ τ }"
+    );
+
+    @Param({"short", "long", "accents", "greek"})
+    public String kind;
+
+    private String formula;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        formula = FORMULAS.get(kind);
+    }
+
+    @Benchmark
+    public String regexChain() {
+        return LegacyStarMathFixer.fixFormula(formula);
+    }
+
+    @Benchmark
+    public String rewriter() {
+        return StarMathRewriter.rewrite(formula);
+    }
+}
@@ -39,6 +39,21 @@ public class BootstrapConnector {
     /** The connection string which has ben used to establish the connection. */
     private String oooConnectionString;
 
+    /** The default time to wait for the office to accept connections (5 min). */
+    public static final long DEFAULT_CONNECT_TIMEOUT = 300000;
+
+    /** The first delay between two connection attempts in milliseconds. */
+    private static final long MIN_POLL_DELAY = 5;
+
+    /** The maximum delay between two connection attempts in milliseconds. */
+    private static final long MAX_POLL_DELAY = 250;
+
+    /** The time to wait for the office to accept connections in milliseconds. */
+    private long connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+
+    /** The time the office took to accept the last connection in nanoseconds. */
+    private long lastStartupTime = 0;
+
     /**
      * Constructs a bootstrap connector which uses the folder of the OOo
      * installation containing the soffice executable.
@@ -63,6 +78,28 @@ public class BootstrapConnector {
         this.oooConnectionString = null;
     }
 
+    /**
+     * Sets the time to wait for the office to accept connections after it
+     * has been started.
+     * 
+     * @param   millis   The timeout in milliseconds
+     */
+    public void setConnectTimeout(long millis) {
+
+        this.connectTimeout = millis;
+    }
+
+    /**
+     * Returns the time between starting the office and the first accepted
+     * connection of the last connect.
+     * 
+     * @return     The startup time in nanoseconds or 0 if there has been no connect
+     */
+    public long getLastStartupTime() {
+
+        return lastStartupTime;
+    }
+
     /**
      * Connects to an OOo server using the specified accept option and
      * connection string and returns a component context for using the
@@ -99,6 +136,7 @@ public class BootstrapConnector {
             // get local context
             XComponentContext xLocalContext = getLocalContext();
 
+            long start = System.nanoTime();
             oooServer.start(oooAcceptOption);
 
             // initial service manager
@@ -109,20 +147,29 @@ public class BootstrapConnector {
             // create a URL resolver
             XUnoUrlResolver xUrlResolver = UnoUrlResolver.create(xLocalContext);
 
-            // wait until office is started
-            for (int i = 0;; ++i) {
+            // wait until office is started: poll with a short delay at first
+            // and back off exponentially, so the connection is established
+            // within milliseconds after the office starts accepting
+            long deadline = start + connectTimeout * 1000000L;
+            long delay = MIN_POLL_DELAY;
+            while (true) {
                 try {
                     xContext = getRemoteContext(xUrlResolver);
                     break;
                 } catch ( com.sun.star.connection.NoConnectException ex ) {
-                    // Wait 500 ms, then try to connect again, but do not wait
-                    // longer than 5 min (= 600 * 500 ms) total:
-                    if (i == 600) {
+                    // The office process has failed, it will never accept
+                    if (oooServer.hasFailed()) {
+                        throw new BootstrapException("office process terminated before accepting connections");
+                    }
+                    if (System.nanoTime() + delay * 1000000L > deadline) {
                         throw new BootstrapException(ex.toString());
                     }
-                    Thread.sleep(500);
+                    Thread.sleep(delay);
+                    delay = Math.min(delay * 2, MAX_POLL_DELAY);
                 }
             }
+            lastStartupTime = System.nanoTime() - start;
+            StartupStatistics.record(lastStartupTime);
         } catch (java.lang.RuntimeException e) {
             throw e;
         } catch (java.lang.Exception e) {
@@ -131,6 +178,46 @@ public class BootstrapConnector {
         return xContext;
     }
 
+    /**
+     * Connects to an already running OOo server using the specified
+     * connection string without starting a new one. The connection is made
+     * once, without waiting for the office to start accepting connections.
+     * 
+     * The office is not terminated by this connector: it is shared with
+     * other clients and keeps running after the connection is closed.
+     * 
+     * @param   oooConnectionString   The connection string, e.g.
+     *                                uno:socket,host=localhost,port=2002;urp;StarOffice.ComponentContext
+     * @return                        The component context or null if no office accepts connections
+     * @throws BootstrapException     If the connection string is invalid or no service manager is found
+     */
+    public static XComponentContext attach(String oooConnectionString) throws BootstrapException {
+
+        try {
+            // get local context
+            XComponentContext xLocalContext = Bootstrap.createInitialComponentContext(null);
+            if (xLocalContext == null) {
+                throw new BootstrapException("no local component context!");
+            }
+
+            // create a URL resolver
+            XUnoUrlResolver xUrlResolver = UnoUrlResolver.create(xLocalContext);
+
+            Object context = xUrlResolver.resolve(oooConnectionString);
+            XComponentContext xContext = (XComponentContext) UnoRuntime.queryInterface(XComponentContext.class, context);
+            if (xContext == null) {
+                throw new BootstrapException("no component context!");
+            }
+            return xContext;
+        } catch (NoConnectException e) {
+            return null;
+        } catch (java.lang.RuntimeException | BootstrapException e) {
+            throw e;
+        } catch (java.lang.Exception e) {
+            throw new BootstrapException(e);
+        }
+    }
+
     /**
      * Disconnects from an OOo server using the connection string from the
      * previous connect.
@@ -0,0 +1,85 @@
+package ooo.connector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the time it took OOo servers to accept the first UNO connection
+ * after they have been started.
+ *
+ * Every successful connect of a BootstrapConnector is recorded here, so the
+ * distribution of startup latencies of all office processes started by this
+ * JVM can be inspected.
+ */
+public class StartupStatistics {
+
+    /** The recorded startup times in nanoseconds. */
+    private static final List<Long> startupTimes = new ArrayList<>();
+
+    private StartupStatistics() {
+    }
+
+    /**
+     * Records the startup time of an OOo server.
+     *
+     * @param   nanos   The time between the start of the process and the first accepted connection
+     */
+    public static synchronized void record(long nanos) {
+
+        startupTimes.add(nanos);
+    }
+
+    /**
+     * Returns the number of recorded startups.
+     *
+     * @return     The number of recorded startups
+     */
+    public static synchronized int getCount() {
+
+        return startupTimes.size();
+    }
+
+    /**
+     * Returns the most recently recorded startup time.
+     *
+     * @return     The startup time in nanoseconds or 0 if nothing has been recorded
+     */
+    public static synchronized long getLast() {
+
+        return startupTimes.isEmpty() ? 0 : startupTimes.get(startupTimes.size() - 1);
+    }
+
+    /**
+     * Returns a percentile of the recorded startup times using the nearest
+     * rank method.
+     *
+     * @param   p   The percentile (0 to 100)
+     * @return      The startup time in nanoseconds or 0 if nothing has been recorded
+     */
+    public static synchronized long percentile(double p) {
+
+        if (startupTimes.isEmpty())
+            return 0;
+
+        List<Long> sorted = new ArrayList<>(startupTimes);
+        Collections.sort(sorted);
+
+        int rank = (int) Math.ceil(p / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, rank - 1)));
+    }
+
+    /**
+     * Returns a one-line summary of the recorded startup times.
+     *
+     * @return     The summary
+     */
+    public static synchronized String summary() {
+
+        return String.format("n = %d, p50 = %d ms, p95 = %d ms, max = %d ms",
+                getCount(),
+                percentile(50) / 1000000,
+                percentile(95) / 1000000,
+                percentile(100) / 1000000);
+    }
+}
@@ -28,7 +28,7 @@ import java.util.List;
 public class OOoServer {
 
     /** The OOo server process. */
-    private Process oooProcess;
+    private volatile Process oooProcess;
 
     /** The folder of the OOo installation containing the soffice executable. */
     private String  oooExecFolder;
@@ -112,10 +112,11 @@ public class OOoServer {
             oooCommand[arguments-1] = oooAcceptOption;
 
         // start office process
-        oooProcess = Runtime.getRuntime().exec(oooCommand);
+        Process process = Runtime.getRuntime().exec(oooCommand);
+        oooProcess = process;
 
-        pipe(oooProcess.getInputStream(), System.out, "CO> ");
-        pipe(oooProcess.getErrorStream(), System.err, "CE> ");
+        pipe(process.getInputStream(), System.out, "CO> ");
+        pipe(process.getErrorStream(), System.err, "CE> ");
     }
 
     /**
@@ -128,13 +129,59 @@ public class OOoServer {
      */
     public void kill() {
 
-        if (oooProcess != null)
+        Process process = oooProcess;
+        if (process != null)
         {
-            oooProcess.destroy();
+            process.destroy();
             oooProcess = null;
         }
     }
 
+    /**
+     * Kills the OOo server process from the previous start without giving it
+     * a chance to shut down gracefully. Used for hung processes which do not
+     * react to a normal termination request.
+     * 
+     * If there has been no previous start of the OOo server, the kill does
+     * nothing.
+     */
+    public void killForcibly() {
+
+        // may be called from a watchdog thread while the process is in use
+        Process process = oooProcess;
+        if (process != null)
+        {
+            process.destroyForcibly();
+            oooProcess = null;
+        }
+    }
+
+    /**
+     * Tests whether the OOo server process from the previous start is still
+     * running.
+     * 
+     * @return     true if the process has been started and has not exited yet
+     */
+    public boolean isAlive() {
+
+        Process process = oooProcess;
+        return process != null && process.isAlive();
+    }
+
+    /**
+     * Tests whether the OOo server process from the previous start has exited
+     * with an error. A process which has exited successfully may have passed
+     * its arguments to another running office, so it is not considered to be
+     * failed.
+     * 
+     * @return     true if the process has exited with a non-zero exit code
+     */
+    public boolean hasFailed() {
+
+        Process process = oooProcess;
+        return process != null && !process.isAlive() && process.exitValue() != 0;
+    }
+
     private static void pipe(final InputStream in, final PrintStream out, final String prefix ) {
        new Thread( "Pipe: " + prefix) {
             @Override
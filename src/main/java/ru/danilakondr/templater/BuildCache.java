@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Кэш сборки документа. Рядом с итоговым файлом хранится список входных
+ * данных последней сборки вместе с их хешами (SHA-256): шаблон, основной
+ * текст, включаемые файлы, строковые макросы, параметры обработки и версия
+ * программы, а также хеши итоговых файлов. Если ничего из этого не
+ * изменилось, документ не собирается заново.
+ * <p>
+ * Макросы, зависящие от времени (<code>%DATE%</code>, <code>%YEAR%</code>
+ * и т. п.), сохраняются вместе со значениями, которые были подставлены в
+ * документ. Сборка считается актуальной, только если сейчас они дают те же
+ * значения: например, документ с <code>%YEAR%</code> пересобирается в
+ * новом году, а документ с <code>%TIME%</code> &mdash; каждую минуту.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class BuildCache {
+    private static final String INPUT = "input.";
+    private static final String INCLUDE = "include.";
+    private static final String TIME = "time.";
+    private static final String OUTPUT = "output.";
+
+    private final Path manifest;
+
+    /**
+     * Создаёт кэш сборки для итогового файла.
+     *
+     * @param outputPath путь к итоговому файлу
+     */
+    public BuildCache(String outputPath) {
+        this.manifest = Path.of(outputPath + ".templater");
+    }
+
+    public Path getManifest() {
+        return manifest;
+    }
+
+    /**
+     * Проверяет, актуальна ли последняя сборка.
+     *
+     * @param inputs хеши входных данных, известных до сборки
+     * @param timeLookup функция, вычисляющая текущие значения макросов,
+     *                   зависящих от времени
+     * @return <code>true</code>, если документ можно не собирать заново
+     */
+    public boolean isUpToDate(Map<String, String> inputs, Function<String, String> timeLookup) {
+        Properties last = new Properties();
+        try (Reader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            last.load(reader);
+        }
+        catch (IOException e) {
+            return false;
+        }
+
+        Set<String> lastInputs = new HashSet<>();
+        try {
+            for (String key : last.stringPropertyNames()) {
+                String value = last.getProperty(key);
+                String current;
+
+                if (key.startsWith(INPUT)) {
+                    lastInputs.add(key.substring(INPUT.length()));
+                    current = inputs.get(key.substring(INPUT.length()));
+                }
+                else if (key.startsWith(INCLUDE) || key.startsWith(OUTPUT)) {
+                    File f = new File(key.substring(key.indexOf('.') + 1));
+                    current = f.isFile() ? hashFile(f) : null;
+                }
+                else if (key.startsWith(TIME)) {
+                    current = timeLookup.apply(key.substring(TIME.length()));
+                }
+                else {
+                    continue;
+                }
+
+                if (!value.equals(current))
+                    return false;
+            }
+        }
+        catch (IOException e) {
+            return false;
+        }
+
+        return lastInputs.equals(inputs.keySet());
+    }
+
+    /**
+     * Записывает сведения о выполненной сборке.
+     *
+     * @param inputs хеши входных данных, известных до сборки
+     * @param includes включённые в документ файлы
+     * @param timeValues значения подставленных макросов, зависящих от
+     *                   времени
+     * @param outputs итоговые файлы
+     * @throws IOException ошибка при чтении файлов или записи кэша
+     */
+    public void record(Map<String, String> inputs, Collection<File> includes,
+                       Map<String, String> timeValues, Collection<File> outputs) throws IOException {
+        Properties p = new Properties();
+        inputs.forEach((k, v) -> p.setProperty(INPUT + k, v));
+        for (File f : includes)
+            p.setProperty(INCLUDE + f.getAbsolutePath(), hashFile(f));
+        timeValues.forEach((k, v) -> p.setProperty(TIME + k, v));
+        for (File f : outputs)
+            p.setProperty(OUTPUT + f.getAbsolutePath(), hashFile(f));
+
+        try (Writer writer = Files.newBufferedWriter(manifest, StandardCharsets.UTF_8)) {
+            p.store(writer, "UNO Templater build cache");
+        }
+    }
+
+    /**
+     * Удаляет сведения о последней сборке.
+     */
+    public void invalidate() {
+        try {
+            Files.deleteIfExists(manifest);
+        }
+        catch (IOException ignored) {}
+    }
+
+    /**
+     * Вычисляет хеш содержимого файла.
+     *
+     * @param f файл
+     * @return хеш SHA-256 в шестнадцатеричном виде
+     * @throws IOException ошибка при чтении файла
+     */
+    public static String hashFile(File f) throws IOException {
+        MessageDigest md = sha256();
+        try (InputStream in = new FileInputStream(f)) {
+            byte[] buf = new byte[65536];
+            int n;
+            while ((n = in.read(buf)) > 0)
+                md.update(buf, 0, n);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    /**
+     * Вычисляет хеш строки.
+     *
+     * @param s строка
+     * @return хеш SHA-256 в шестнадцатеричном виде
+     */
+    public static String hash(String s) {
+        return HexFormat.of().formatHex(sha256().digest(s.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
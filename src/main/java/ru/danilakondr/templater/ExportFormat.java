@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater;
+
+import com.sun.star.beans.PropertyValue;
+
+import java.util.Locale;
+
+/**
+ * Формат, в который экспортируется обработанный документ.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public enum ExportFormat {
+    ODT("writer8", "odt"),
+    DOCX("MS Word 2007 XML", "docx"),
+    PDF("writer_pdf_Export", "pdf"),
+    /**
+     * PDF/A-2b. Файл получает суффикс <code>-pdfa</code>, чтобы не совпадать
+     * с файлом PDF.
+     */
+    PDFA("writer_pdf_Export", "pdf");
+
+    private final String filterName;
+    private final String extension;
+
+    ExportFormat(String filterName, String extension) {
+        this.filterName = filterName;
+        this.extension = extension;
+    }
+
+    public String getFilterName() {
+        return filterName;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Возвращает суффикс, который добавляется к имени файла перед
+     * расширением.
+     *
+     * @return суффикс имени файла
+     */
+    public String getSuffix() {
+        return this == PDFA ? "-pdfa" : "";
+    }
+
+    /**
+     * Возвращает параметры фильтра экспорта (<code>FilterData</code>).
+     *
+     * @return параметры фильтра или <code>null</code>, если они не нужны
+     */
+    public PropertyValue[] getFilterData() {
+        if (this != PDFA)
+            return null;
+
+        PropertyValue version = new PropertyValue();
+        version.Name = "SelectPdfVersion";
+        version.Value = 2;
+        return new PropertyValue[] {version};
+    }
+
+    /**
+     * Находит формат по имени (<code>odt</code>, <code>docx</code>,
+     * <code>pdf</code>, <code>pdfa</code>) без учёта регистра.
+     *
+     * @param name имя формата
+     * @return формат
+     * @throws IllegalArgumentException неизвестный формат
+     */
+    public static ExportFormat parse(String name) {
+        String n = name.trim().toUpperCase(Locale.ROOT).replace("/", "");
+        for (ExportFormat f : values()) {
+            if (f.name().equals(n))
+                return f;
+        }
+
+        throw new IllegalArgumentException("Unknown export format: " + name);
+    }
+}
@@ -20,11 +20,15 @@
 package ru.danilakondr.templater;
 
 import com.sun.star.uno.XComponentContext;
+import ooo.connector.BootstrapConnector;
 import ooo.connector.BootstrapSocketConnector;
+import ooo.connector.server.OOoServer;
+import ru.danilakondr.templater.pool.OfficeProfile;
 
 import java.io.*;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Properties;
@@ -44,6 +48,12 @@ import org.apache.commons.lang3.SystemUtils;
 public class LibreOffice {
     private static final String LIBREOFFICE_HOME_PROPERTY = "libreoffice.home";
 
+    private static final String LIBREOFFICE_TIMEOUT_PROPERTY = "libreoffice.timeout";
+
+    private static final String LIBREOFFICE_PROFILE_PROPERTY = "libreoffice.profile";
+
+    private static final String LIBREOFFICE_CONNECT_PROPERTY = "libreoffice.connect";
+
     private static final String LIBREOFFICE_PROPERTIES_FILE = "libreoffice.properties";
     /**
      * Ищет LibreOffice.
@@ -54,7 +64,7 @@ public class LibreOffice {
      * @throws IOException исключение, обозначающее ошибку при обращении
      *                     к директории
      */
-    private static String find() throws LibreOfficeException, IOException {
+    public static String find() throws LibreOfficeException, IOException {
         String loHomePath = getLibreOfficeHomeSetting();
         if (loHomePath != null) {
             File loHomeDir = new File(loHomePath);
@@ -73,8 +83,7 @@ public class LibreOffice {
         throw new LibreOfficeException("Unrecognized platform");
     }
 
-    private static String getLibreofficeHomeProperty(Path p) throws IOException {
-        String loHomePath = null;
+    private static String getLibreofficeProperty(Path p, String name) throws IOException {
         Properties loProps = new Properties();
 
         File propsFile = p.toFile();
@@ -82,24 +91,73 @@ public class LibreOffice {
             loProps.load(new InputStreamReader(new FileInputStream(propsFile)));
         }
 
-        loHomePath = loProps.getProperty(LIBREOFFICE_HOME_PROPERTY);
-
-        return loHomePath;
+        return loProps.getProperty(name);
     }
 
-    private static String getLibreOfficeHomeSetting() throws IOException {
-        String loHomePath = System.getenv("LIBREOFFICE_HOME");
-        if (loHomePath == null) {
-            loHomePath = System.getProperty(LIBREOFFICE_HOME_PROPERTY);
+    /**
+     * Ищет значение настройки. Настройка ищется сначала в переменной среды,
+     * затем в системных свойствах Java, затем в файлах
+     * <code>libreoffice.properties</code> в домашней и текущей директориях.
+     *
+     * @param envName имя переменной среды
+     * @param name имя свойства
+     * @return значение настройки или <code>null</code>, если она не указана
+     * @since 0.7.0
+     */
+    private static String getSetting(String envName, String name) throws IOException {
+        String value = System.getenv(envName);
+        if (value == null) {
+            value = System.getProperty(name);
         }
-        if (loHomePath == null) {
-            loHomePath = getLibreofficeHomeProperty(Path.of(System.getProperty("user.home"), LIBREOFFICE_PROPERTIES_FILE));
+        if (value == null) {
+            value = getLibreofficeProperty(Path.of(System.getProperty("user.home"), LIBREOFFICE_PROPERTIES_FILE), name);
         }
-        if (loHomePath == null) {
-            loHomePath = getLibreofficeHomeProperty(Path.of(".", LIBREOFFICE_PROPERTIES_FILE));
+        if (value == null) {
+            value = getLibreofficeProperty(Path.of(".", LIBREOFFICE_PROPERTIES_FILE), name);
         }
 
-        return loHomePath;
+        return value;
+    }
+
+    private static String getLibreOfficeHomeSetting() throws IOException {
+        return getSetting("LIBREOFFICE_HOME", LIBREOFFICE_HOME_PROPERTY);
+    }
+
+    /**
+     * Возвращает время ожидания запуска LibreOffice. Задаётся переменной
+     * <code>LIBREOFFICE_TIMEOUT</code> или настройкой
+     * <code>libreoffice.timeout</code> (в секундах).
+     *
+     * @return время ожидания в миллисекундах
+     * @since 0.7.0
+     */
+    public static long getConnectTimeout() throws LibreOfficeException, IOException {
+        String timeout = getSetting("LIBREOFFICE_TIMEOUT", LIBREOFFICE_TIMEOUT_PROPERTY);
+        if (timeout == null)
+            return BootstrapConnector.DEFAULT_CONNECT_TIMEOUT;
+
+        try {
+            long seconds = Long.parseLong(timeout.trim());
+            if (seconds > 0)
+                return seconds * 1000;
+        }
+        catch (NumberFormatException ignored) {}
+
+        throw new LibreOfficeException("Invalid LibreOffice timeout: " + timeout);
+    }
+
+    /**
+     * Возвращает директорию снимка профиля LibreOffice. Задаётся переменной
+     * <code>LIBREOFFICE_PROFILE</code> или настройкой
+     * <code>libreoffice.profile</code>.
+     *
+     * @return директория снимка или <code>null</code>, если она не указана
+     * @see OfficeProfile
+     * @since 0.7.0
+     */
+    public static Path getProfileTemplate() throws IOException {
+        String profile = getSetting("LIBREOFFICE_PROFILE", LIBREOFFICE_PROFILE_PROPERTY);
+        return profile == null ? null : Path.of(profile);
     }
 
     private static String findLibreOfficeInWindows() throws LibreOfficeException, IOException {
@@ -153,7 +211,124 @@ public class LibreOffice {
      */
     public static XComponentContext bootstrap() throws Exception {
         String path = find();
-        return BootstrapSocketConnector.bootstrap(path);
+
+        BootstrapSocketConnector connector = new BootstrapSocketConnector(path);
+        connector.setConnectTimeout(getConnectTimeout());
+        return connector.connect();
     }
-}
 
+    /**
+     * Запускает LibreOffice с копией снимка профиля.
+     *
+     * @param profileTemplate директория снимка или <code>null</code>, если
+     *                        используется профиль по умолчанию
+     * @see OfficeProfile
+     * @since 0.7.0
+     */
+    public static XComponentContext bootstrap(Path profileTemplate) throws Exception {
+        return bootstrap(null, profileTemplate);
+    }
+
+    /**
+     * Запускает LibreOffice, который принимает соединения по указанному
+     * адресу UNO. Такой LibreOffice остаётся работать после завершения
+     * программы, и следующие запуски подключаются к нему
+     * ({@link #attach(String)}).
+     *
+     * @param endpoint адрес UNO (см. {@link #parseEndpoint(String)}) или
+     *                 <code>null</code>, если LibreOffice используется
+     *                 только этой программой
+     * @param profileTemplate директория снимка или <code>null</code>, если
+     *                        используется профиль по умолчанию. Копия
+     *                        снимка удаляется при завершении программы
+     *                        вместе с LibreOffice, если адрес не указан
+     * @see OfficeProfile
+     * @since 0.7.0
+     */
+    public static XComponentContext bootstrap(String endpoint, Path profileTemplate) throws Exception {
+        if (endpoint == null && profileTemplate == null)
+            return bootstrap();
+
+        String path = find();
+        List<String> options = OOoServer.getDefaultOOoOptions();
+        Path profileDir = null;
+        if (profileTemplate != null) {
+            profileDir = OfficeProfile.copyToTemporary(profileTemplate);
+            options.add(OfficeProfile.userInstallationOption(profileDir));
+        }
+
+        BootstrapSocketConnector connector = new BootstrapSocketConnector(new OOoServer(path, options));
+        connector.setConnectTimeout(getConnectTimeout());
+        if (endpoint == null) {
+            XComponentContext xContext = connector.connect();
+            if (profileDir != null) {
+                // LibreOffice нельзя оставлять работать без профиля, поэтому
+                // он завершается до удаления временной директории
+                Path dir = profileDir;
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    connector.disconnect();
+                    OfficeProfile.delete(dir);
+                }));
+            }
+            return xContext;
+        }
+
+        // Профиль общего LibreOffice нужен и после завершения программы
+
+        String connection = parseEndpoint(endpoint);
+        return connector.connect("--accept=" + connection + ";urp;",
+                "uno:" + connection + ";urp;StarOffice.ComponentContext");
+    }
+
+    /**
+     * Возвращает адрес UNO уже запущенного LibreOffice, к которому нужно
+     * подключаться. Задаётся переменной <code>LIBREOFFICE_CONNECT</code> или
+     * настройкой <code>libreoffice.connect</code>.
+     *
+     * @return адрес UNO или <code>null</code>, если он не указан
+     * @since 0.7.0
+     */
+    public static String getConnectEndpoint() throws IOException {
+        return getSetting("LIBREOFFICE_CONNECT", LIBREOFFICE_CONNECT_PROPERTY);
+    }
+
+    /**
+     * Разбирает адрес UNO. Адрес указывается так же, как в ключе
+     * <code>--accept</code> LibreOffice (<code>socket,host=localhost,port=2002</code>
+     * или <code>pipe,name=templater</code>); допускается и полная строка
+     * соединения (<code>uno:socket,...;urp;StarOffice.ComponentContext</code>).
+     *
+     * @param endpoint адрес UNO
+     * @return описание соединения без протокола и имени объекта
+     * @throws LibreOfficeException неверный адрес
+     * @since 0.7.0
+     */
+    public static String parseEndpoint(String endpoint) throws LibreOfficeException {
+        String connection = endpoint.trim();
+        if (connection.startsWith("uno:"))
+            connection = connection.substring("uno:".length());
+
+        int end = connection.indexOf(';');
+        if (end >= 0)
+            connection = connection.substring(0, end);
+
+        if (!connection.startsWith("socket,") && !connection.startsWith("pipe,"))
+            throw new LibreOfficeException("Invalid UNO endpoint: " + endpoint);
+
+        return connection;
+    }
+
+    /**
+     * Подключается к уже запущенному LibreOffice. Программа не завершает
+     * этот LibreOffice: после обработки документа он продолжает работать.
+     *
+     * @param endpoint адрес UNO (см. {@link #parseEndpoint(String)})
+     * @return контекст или <code>null</code>, если по этому адресу
+     * LibreOffice не принимает соединения
+     * @since 0.7.0
+     */
+    public static XComponentContext attach(String endpoint) throws Exception {
+        return BootstrapConnector.attach(
+                "uno:" + parseEndpoint(endpoint) + ";urp;StarOffice.ComponentContext");
+    }
+}
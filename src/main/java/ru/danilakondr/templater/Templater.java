@@ -29,22 +29,32 @@ import com.sun.star.lang.*;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.lang.Exception;
 import java.lang.IllegalArgumentException;
 import java.lang.RuntimeException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.sun.star.util.XCloseable;
 import ru.danilakondr.templater.macros.*;
+import ru.danilakondr.templater.metrics.PhaseMetrics;
+import ru.danilakondr.templater.metrics.PipelineMetrics;
 import ru.danilakondr.templater.processing.*;
 import ru.danilakondr.templater.progress.DefaultProgressInformer;
+import ru.danilakondr.templater.progress.ProgressListener;
 
 /**
  * Главный класс постобработчика документов с использованием LibreOffice.
@@ -64,6 +74,8 @@ public class Templater {
 	private boolean shouldEmbedFonts;
 	private boolean shouldOverwrite;
 	private boolean verbose;
+	private boolean targetedLists;
+	private boolean incremental;
 
 	private final StringMacros stringMacros;
 
@@ -71,6 +83,13 @@ public class Templater {
 	private XTextDocument xDoc;
 	private XComponentContext xContext;
 	private XMultiComponentFactory xMCF;
+	private IncludeCache includeCache;
+	private File includeDirectory;
+	private DocumentStatistics statistics;
+	private DeferredUpdates updates;
+	private Set<File> includedFiles = Set.of();
+	private final PipelineMetrics metrics;
+	private final Set<ExportFormat> exportFormats;
 
 	private final DefaultProgressInformer informer;
 
@@ -79,6 +98,8 @@ public class Templater {
 		this.xMCF = null;
 		this.stringMacros = new StringMacros();
 		this.informer = new DefaultProgressInformer("Doing");
+		this.metrics = new PipelineMetrics();
+		this.exportFormats = EnumSet.noneOf(ExportFormat.class);
 	}
 
 	public void setContext(XComponentContext xContext) {
@@ -86,9 +107,45 @@ public class Templater {
 		this.xMCF = this.xContext.getServiceManager();
 	}
 
+	/**
+	 * Устанавливает уже созданный &laquo;рабочий стол&raquo; LibreOffice.
+	 * В этом случае он не создаётся заново при обработке документа.
+	 *
+	 * @param xDesktop рабочий стол
+	 * @since 0.7.0
+	 */
+	public void setDesktop(XDesktop xDesktop) {
+		this.xDesktop = xDesktop;
+	}
+
+	/**
+	 * Устанавливает кэш включаемых документов, общий для нескольких
+	 * документов. Если кэш не задан, он создаётся на время обработки
+	 * одного документа.
+	 *
+	 * @param includeCache кэш включаемых документов
+	 * @since 0.7.0
+	 */
+	public void setIncludeCache(IncludeCache includeCache) {
+		this.includeCache = includeCache;
+	}
+
+	/**
+	 * Устанавливает директорию, относительно которой указываются пути в
+	 * макросах <code>%INCLUDE(...)%</code>.
+	 *
+	 * @param includeDirectory директория или <code>null</code>, если пути
+	 *                         указываются относительно текущей директории
+	 * @since 0.7.0
+	 */
+	public void setIncludeDirectory(File includeDirectory) {
+		this.includeDirectory = includeDirectory;
+	}
+
 	public void setOutputPath(String outputPath) {
 		this.outputPath = outputPath;
 		this.outputURL = getURI(outputPath);
+		this.informer.setSource(outputPath);
 	}
 
 	public void setTemplatePath(String templatePath) {
@@ -109,6 +166,17 @@ public class Templater {
 		this.shouldEmbedFonts = shouldEmbedFonts;
 	}
 
+	/**
+	 * Добавляет формат, в который документ экспортируется методом
+	 * {@link Templater#exportDocument()}.
+	 *
+	 * @param format формат экспорта
+	 * @since 0.7.0
+	 */
+	public void addExportFormat(ExportFormat format) {
+		exportFormats.add(format);
+	}
+
 	public void loadMacrosFromFile(String path) throws IOException {
 		stringMacros.loadFromFile(path);
 	}
@@ -121,63 +189,257 @@ public class Templater {
 		stringMacros.loadFromMap(props);
 	}
 
+	/**
+	 * Включает обработку только абзацев списков, найденных по правилам
+	 * нумерации документа, вместо обхода всех абзацев документа.
+	 *
+	 * @param targetedLists обрабатывать только абзацы списков
+	 * @see TextDocument#processListParagraphs
+	 * @since 0.7.0
+	 */
+	public void setTargetedLists(boolean targetedLists) {
+		this.targetedLists = targetedLists;
+	}
+
+	/**
+	 * Включает кэш сборки: если входные данные не изменились с последней
+	 * сборки, документ не собирается заново.
+	 *
+	 * @param incremental использовать кэш сборки
+	 * @see BuildCache
+	 * @since 0.7.0
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
 	public void setVerbose(boolean verbose) {
 		this.verbose = verbose;
 		this.informer.setSilent(!verbose);
 	}
 
+	/**
+	 * Устанавливает поток, в который выводятся сообщения о процессе
+	 * обработки.
+	 *
+	 * @param out поток вывода
+	 * @since 0.7.0
+	 */
+	public void setProgressOutput(PrintStream out) {
+		this.informer.setOutput(out);
+	}
+
+	/**
+	 * Добавляет получателя событий процесса обработки. События передаются
+	 * и в том случае, если вывод сообщений отключён.
+	 *
+	 * @param listener получатель событий
+	 * @since 0.7.0
+	 */
+	public void addProgressListener(ProgressListener listener) {
+		this.informer.addListener(listener);
+	}
+
+	/**
+	 * Возвращает показатели обработки документа по этапам: время,
+	 * число обработанных элементов и обращений к LibreOffice.
+	 *
+	 * @return показатели обработки
+	 * @since 0.7.0
+	 */
+	public PipelineMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Возвращает файлы, вставленные в документ макросами
+	 * <code>%INCLUDE(...)%</code> при последней обработке.
+	 *
+	 * @return вставленные файлы
+	 * @since 0.7.0
+	 */
+	public Set<File> getIncludedFiles() {
+		return includedFiles;
+	}
+
+	/**
+	 * Проверяет по кэшу сборки, актуальны ли итоговые файлы. Если кэш
+	 * сборки не используется, всегда возвращает <code>false</code>.
+	 *
+	 * @return <code>true</code>, если документ можно не собирать заново
+	 * @since 0.7.0
+	 */
+	public boolean isUpToDate() {
+		if (!incremental || templatePath == null || mainTextPath == null || outputPath == null)
+			return false;
+
+		try {
+			return new BuildCache(outputPath).isUpToDate(getBuildInputs(), new TimeMacros()::lookup);
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Записывает в кэш сборки сведения о выполненной сборке. Вызывается
+	 * после сохранения и экспорта документа.
+	 *
+	 * @since 0.7.0
+	 */
+	public void recordBuild() throws Exception {
+		if (!incremental)
+			return;
+
+		List<File> outputs = new ArrayList<>();
+		outputs.add(Path.of(new URI(outputURL)).toFile());
+		for (ExportFormat format : exportFormats) {
+			String exportURL = getExportURL(format);
+			if (!exportURL.equals(outputURL))
+				outputs.add(Path.of(new URI(exportURL)).toFile());
+		}
+
+		new BuildCache(outputPath).record(getBuildInputs(), includedFiles,
+				stringMacros.getTimeValues(), outputs);
+	}
+
+	/**
+	 * Вычисляет хеши входных данных, известных до сборки документа.
+	 */
+	private Map<String, String> getBuildInputs() throws IOException {
+		Map<String, String> inputs = new TreeMap<>();
+		inputs.put("version", BuildVersion.getVersion());
+		inputs.put("template", BuildCache.hashFile(new File(templatePath)));
+		inputs.put("main", BuildCache.hashFile(new File(mainTextPath)));
+		inputs.put("macros", BuildCache.hash(stringMacros.getDefinitions().toString()));
+		inputs.put("options", String.format("embedFonts=%b,targetedLists=%b,export=%s",
+				shouldEmbedFonts, targetedLists, exportFormats));
+		return inputs;
+	}
+
 	public void processDocument() throws Exception {
 		this.checkFiles();
-		this.createDesktop();
+		metrics.setDocument(outputPath);
+		if (incremental)
+			new BuildCache(outputPath).invalidate();
+		if (xDesktop == null)
+			this.createDesktop();
+		this.updates = new DeferredUpdates();
 
-		fixObjectAnchorsInMainFile();
-		this.loadTemplate();
+		try {
+			try (PhaseMetrics ignored = metrics.phase("load-template")) {
+				this.loadTemplate();
+			}
 
-		this.substituteMacros();
-		this.fixDocument();
-		this.applyCounters();
+			this.substituteMacros();
+			this.fixDocument();
+			this.runDeferredUpdates();
+		}
+		finally {
+			informer.finish();
+		}
 	}
 
 	private void substituteMacros() throws Exception {
 		MacroSubstitutor substitutor = new MacroSubstitutor(xDoc);
-
-		informer.setProgressString("Including documents");
-		informer.inform(-1, -1);
-		substitutor.substitute(new MainTextIncludeSubstitutor(mainTextURL));
-		substitutor.substitute(new DocumentIncludeSubstitutor());
-
-		informer.setProgressString("Substituting string macros");
-		informer.inform(-1, -1);
-		substitutor.substitute(new StringMacroSubstitutor(stringMacros));
-
-		informer.setProgressString("Inserting Table of Contents");
+		IncludeCache cache = includeCache != null ? includeCache : new IncludeCache(xDesktop);
+		DocumentIncludeSubstitutor includer = new DocumentIncludeSubstitutor(cache, includeDirectory);
+		StringMacroSubstitutor strings = new StringMacroSubstitutor(stringMacros);
+		includedFiles = includer.getIncludedFiles();
+		int hits = cache.getHits();
+		int misses = cache.getMisses();
+
+		informer.setProgressString("Substituting macros");
 		informer.inform(-1, -1);
-		substitutor.substitute(new TableOfContentsInserter());
+		try (PhaseMetrics ignored = metrics.phase("macros")) {
+			substitutor.substituteAll(List.of(
+					mainTextIncluder(),
+					includer,
+					strings,
+					new TableOfContentsInserter(updates)
+			));
+		}
+		finally {
+			if (cache != includeCache)
+				cache.close();
+		}
+		informer.message(String.format("Macros substituted with %d document scans",
+				substitutor.getScanCount()));
+		informer.message(String.format("Include cache: %d hits, %d misses",
+				cache.getHits() - hits, cache.getMisses() - misses));
+		informer.message(String.format("String macros: %d replaced in batches",
+				strings.getBatchReplaced()));
 	}
 
 	private void fixDocument() throws Exception {
 		TextDocument document = new TextDocument(xDoc);
+		this.statistics = document.getStatistics();
 
 		informer.setProgressString("Fixing formulas");
-		document.processFormulas(new MathFormulaFixProcessor(), informer);
+		MathFormulaBatchFixer formulaFixer = new MathFormulaBatchFixer();
+		try (PhaseMetrics phase = metrics.phase("fix-formulas")) {
+			document.fixFormulas(formulaFixer, phase.track(informer));
+		}
+		informer.message(String.format("Formulas: %d changed, %d untouched",
+				formulaFixer.getChanged(), formulaFixer.getUntouched()));
 
 		informer.setProgressString("Aligning formulas properly");
-		document.processFormulas(new SingleObjectAligner(), informer);
+		try (PhaseMetrics phase = metrics.phase("align-formulas")) {
+			document.processFormulas(new SingleObjectAligner(), phase.track(informer));
+		}
 
 		informer.setProgressString("Processing numbering style of paragraphs");
-		document.processParagraphs(new NumberingStyleProcessor(), informer);
-
-		informer.setProgressString("Fixing image widths");
-		document.processImages(new ImageSizeFixProcessor(), informer);
+		try (PhaseMetrics phase = metrics.phase("numbering")) {
+			if (targetedLists) {
+				document.processListParagraphs(new NumberingStyleProcessor(), phase.track(informer));
+				statistics.countParagraphs(document);
+			}
+			else {
+				document.processParagraphs(List.of(
+						new NumberingStyleProcessor(),
+						statistics.paragraphCounter()
+				), phase.track(informer));
+			}
+		}
 
-		informer.setProgressString("Fixing image alignments");
-		document.processImages(new SingleObjectAligner(), informer);
+		informer.setProgressString("Fixing image widths and alignments");
+		try (PhaseMetrics phase = metrics.phase("images")) {
+			document.processImages(List.of(
+					new ImageSizeFixProcessor(),
+					new SingleObjectAligner()
+			), phase.track(informer));
+		}
 
 		informer.setProgressString("Setting table styles");
-		document.processTables(new TableStyleSetter(), informer);
+		try (PhaseMetrics phase = metrics.phase("tables")) {
+			document.processTables(new TableStyleSetter(), phase.track(informer));
+		}
+	}
+
+	/**
+	 * Выполняет действия, зависящие от разметки страниц: обновляет
+	 * указатели и подставляет счётчики. Указатели обновляются один раз,
+	 * после всех исправлений документа.
+	 *
+	 * @see DeferredUpdates
+	 * @since 0.7.0
+	 */
+	private void runDeferredUpdates() throws Exception {
+		// Указатели могут быть и в самом шаблоне
+		updates.requestIndexUpdate();
+		updates.afterIndexes("counters", this::applyCounters);
 
 		informer.setProgressString("Updating indexes");
-		document.updateAllIndexes(informer);
+		updates.run(new TextDocument(xDoc), metrics, informer);
+
+		// Макросы %N_PAGES% уже заменены прежним числом страниц, исправить
+		// их нельзя, поэтому о расхождении нужно сообщить даже без -v
+		if (!updates.isPageCountStable()) {
+			metrics.setPageCountChange(updates.getPagesBefore(), updates.getPagesAfter());
+			System.err.printf("Warning: %s: page count changed from %d to %d after applying counters, "
+					+ "%%N_PAGES%% may be wrong%n",
+					outputPath, updates.getPagesBefore(), updates.getPagesAfter());
+		}
 	}
 
 	private void applyCounters() throws Exception {
@@ -186,7 +448,7 @@ public class Templater {
 
 		new MacroSubstitutor(xDoc)
 				.substitute(new StringMacroSubstitutor(
-						new DocumentCounter(xDoc)));
+						new DocumentCounter(xDoc, statistics)));
 	}
 
 	private boolean isFileNotExists(String url) {
@@ -253,36 +515,63 @@ public class Templater {
 	}
 
 	/**
-	 * Исправляет выравнивание формул и изображений в главном файле.
+	 * Создаёт обработчик, который вставляет основной текст в шаблон и
+	 * исправляет привязку формул и изображений основного текста. Привязка
+	 * исправляется уже в шаблоне, поэтому файл основного текста читается
+	 * один раз и не перезаписывается. Объекты самого шаблона (существующие
+	 * на момент вызова метода) при этом не затрагиваются.
 	 *
-	 * @since 0.3.2
+	 * @return обработчик макроса <code>%MAIN_TEXT%</code>
+	 * @since 0.7.0
 	 */
-	private void fixObjectAnchorsInMainFile() throws Exception {
-		XTextDocument xMainDoc = this.loadFile(mainTextURL);
-		XCloseable xMainDocCloseable = UnoRuntime.queryInterface(XCloseable.class, xMainDoc);
-		XStorable xMainDocStorable = UnoRuntime.queryInterface(XStorable.class, xMainDoc);
-
-		informer.setProgressString("Processing formulas in main file");
-		TextDocument mainDoc = new TextDocument(xMainDoc);
-		mainDoc.processFormulas((o, d) -> {
-			XPropertySet xContentProps = UnoRuntime.queryInterface(XPropertySet.class, o);
-			try {
-				xContentProps.setPropertyValue("AnchorType", TextContentAnchorType.AS_CHARACTER);
+	private MacroSubstitutor.Substitutor mainTextIncluder() {
+		TextDocument document = new TextDocument(xDoc);
+		Set<String> templateFormulas = document.getEmbeddedObjectNames();
+		Set<String> templateImages = document.getGraphicObjectNames();
+		MainTextIncludeSubstitutor include = new MainTextIncludeSubstitutor(mainTextURL);
+
+		return new MacroSubstitutor.Substitutor() {
+			@Override
+			public void substitute(XTextDocument xDoc, XTextRange xRange, String text) {
+				long start = System.nanoTime();
+				include.substitute(xDoc, xRange, text);
+				long inserted = System.nanoTime();
+
+				try {
+					informer.setProgressString("Processing formulas in main text");
+					document.processNewFormulas(Templater::anchorAsCharacter, templateFormulas, informer);
+
+					informer.setProgressString("Processing images in main text");
+					document.processNewImages(Templater::anchorAsCharacter, templateImages, informer);
+				}
+				catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+				long anchored = System.nanoTime();
+
+				informer.message(String.format(
+						"Main text included in %d ms, objects anchored in %d ms",
+						(inserted - start) / 1000000, (anchored - inserted) / 1000000));
+				informer.setProgressString("Substituting macros");
 			}
-			catch (Exception ignored) {}
-		}, informer);
-
-		informer.setProgressString("Processing images in main file");
-		mainDoc.processImages((o, d) -> {
-			XPropertySet xContentProps = UnoRuntime.queryInterface(XPropertySet.class, o);
-			try {
-				xContentProps.setPropertyValue("AnchorType", TextContentAnchorType.AS_CHARACTER);
+
+			@Override
+			public boolean test(String text) {
+				return include.test(text);
 			}
-			catch (Exception ignored) {}
-		}, informer);
 
-		xMainDocStorable.store();
-		xMainDocCloseable.close(true);
+			@Override
+			public boolean insertsContent() {
+				return true;
+			}
+		};
+	}
+
+	private static void anchorAsCharacter(TextObject o, XTextDocument xDoc) {
+		try {
+			o.getPropertySet().setPropertyValue("AnchorType", TextContentAnchorType.AS_CHARACTER);
+		}
+		catch (Exception ignored) {}
 	}
 
 	/**
@@ -358,6 +647,15 @@ public class Templater {
 		informer.setProgressString("Saving document");
 		informer.inform(-1, -1);
 
+		try (PhaseMetrics ignored = metrics.phase("save")) {
+			storeDocument();
+		}
+		finally {
+			informer.finish();
+		}
+	}
+
+	private void storeDocument() throws Exception {
 		XStorable xStorable = UnoRuntime.queryInterface(XStorable.class, xDoc);
 
 		if (shouldEmbedFonts) {
@@ -382,22 +680,41 @@ public class Templater {
 	 * @since 0.4.2
 	 */
 	public void generatePDF() throws Exception {
-		informer.setProgressString("Generating PDF file");
-		informer.inform(-1, -1);
+		exportDocument(ExportFormat.PDF);
+	}
 
-		String pdfURL = outputURL;
+	/**
+	 * Экспортирует документ во все форматы, добавленные методом
+	 * {@link Templater#addExportFormat(ExportFormat)}.
+	 *
+	 * @since 0.7.0
+	 */
+	public void exportDocument() throws Exception {
+		for (ExportFormat format : exportFormats)
+			exportDocument(format);
+	}
 
-		Pattern ext = Pattern.compile("(.*)\\.(.*?)$");
-		Matcher m = ext.matcher(pdfURL);
+	/**
+	 * Экспортирует уже обработанный документ в заданный формат. Документ
+	 * не загружается заново, поэтому разметка страниц не пересчитывается.
+	 * Расширение итогового файла заменяется расширением формата; формат,
+	 * файл которого совпадает с итоговым, пропускается.
+	 *
+	 * @param format формат
+	 * @since 0.7.0
+	 */
+	public void exportDocument(ExportFormat format) throws Exception {
+		String exportURL = getExportURL(format);
+		if (exportURL.equals(outputURL))
+			return;
 
-		if (m.matches())
-			pdfURL = m.replaceAll("$1.pdf");
-		else
-			pdfURL += ".pdf";
+		informer.setProgressString("Exporting " + format.name() + " file");
+		informer.inform(-1, -1);
 
 		XStorable xStorable = UnoRuntime.queryInterface(XStorable.class, xDoc);
 
-		PropertyValue[] propertyValues = new PropertyValue[2];
+		PropertyValue[] filterData = format.getFilterData();
+		PropertyValue[] propertyValues = new PropertyValue[filterData != null ? 3 : 2];
 
 		propertyValues[0] = new PropertyValue();
 		propertyValues[0].Name = "Overwrite";
@@ -405,9 +722,36 @@ public class Templater {
 
 		propertyValues[1] = new PropertyValue();
 		propertyValues[1].Name = "FilterName";
-		propertyValues[1].Value = "writer_pdf_Export";
+		propertyValues[1].Value = format.getFilterName();
 
-		xStorable.storeToURL(pdfURL, propertyValues);
+		if (filterData != null) {
+			propertyValues[2] = new PropertyValue();
+			propertyValues[2].Name = "FilterData";
+			propertyValues[2].Value = filterData;
+		}
+
+		PhaseMetrics phase = metrics.phase("export-" + format.name().toLowerCase(Locale.ROOT));
+		try {
+			xStorable.storeToURL(exportURL, propertyValues);
+		}
+		finally {
+			phase.close();
+			informer.finish();
+		}
+		informer.message(String.format("%s exported in %d ms",
+				format.name(), phase.getNanos() / 1000000));
+	}
+
+	private String getExportURL(ExportFormat format) {
+		String newExtension = format.getSuffix() + "." + format.getExtension();
+
+		Pattern ext = Pattern.compile("(.*)\\.(.*?)$");
+		Matcher m = ext.matcher(outputURL);
+
+		if (m.matches())
+			return m.replaceAll("$1" + Matcher.quoteReplacement(newExtension));
+		else
+			return outputURL + newExtension;
 	}
 
 	/**
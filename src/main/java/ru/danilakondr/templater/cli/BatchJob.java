@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.cli;
+
+import java.io.File;
+import java.util.Set;
+
+/**
+ * Одно задание пакетной обработки: шаблон, основной текст, итоговый файл,
+ * файл макросов и признак генерации PDF.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class BatchJob {
+    private String templatePath;
+    private String mainTextPath;
+    private String outputPath;
+    private String macroFile;
+    private Boolean shouldGeneratePDF;
+    private Set<File> includedFiles = Set.of();
+    private File baseDirectory;
+
+    public String getTemplatePath() {
+        return templatePath;
+    }
+
+    public String getMainTextPath() {
+        return mainTextPath;
+    }
+
+    public String getOutputPath() {
+        return outputPath;
+    }
+
+    public String getMacroFile() {
+        return macroFile;
+    }
+
+    /**
+     * Возвращает признак генерации PDF.
+     *
+     * @return признак генерации PDF или <code>null</code>, если он не указан
+     *         в задании
+     */
+    public Boolean getShouldGeneratePDF() {
+        return shouldGeneratePDF;
+    }
+
+    /**
+     * Возвращает файлы, вставленные в документ при последнем выполнении
+     * задания.
+     *
+     * @return вставленные файлы
+     */
+    public Set<File> getIncludedFiles() {
+        return includedFiles;
+    }
+
+    public void setTemplatePath(String templatePath) {
+        this.templatePath = templatePath;
+    }
+
+    public void setMainTextPath(String mainTextPath) {
+        this.mainTextPath = mainTextPath;
+    }
+
+    public void setOutputPath(String outputPath) {
+        this.outputPath = outputPath;
+    }
+
+    public void setMacroFile(String macroFile) {
+        this.macroFile = macroFile;
+    }
+
+    public void setShouldGeneratePDF(Boolean shouldGeneratePDF) {
+        this.shouldGeneratePDF = shouldGeneratePDF;
+    }
+
+    public void setIncludedFiles(Set<File> includedFiles) {
+        this.includedFiles = includedFiles;
+    }
+
+    /**
+     * Возвращает директорию, относительно которой указаны пути задания
+     * (директорию файла заданий). Относительно неё указываются и пути во
+     * включаемых документах.
+     *
+     * @return директория или <code>null</code>, если пути указаны
+     *         относительно текущей директории
+     */
+    public File getBaseDirectory() {
+        return baseDirectory;
+    }
+
+    public void setBaseDirectory(File baseDirectory) {
+        this.baseDirectory = baseDirectory;
+    }
+
+    @Override
+    public String toString() {
+        return mainTextPath + " -> " + outputPath;
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.cli;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Файл заданий пакетной обработки. Поддерживаются два формата:
+ * <ul>
+ *     <li>CSV (расширение <code>.csv</code>): первая строка содержит имена
+ *     столбцов, каждая следующая &mdash; одно задание;</li>
+ *     <li>JSONL (все остальные расширения): каждая строка содержит один
+ *     JSON-объект с заданием.</li>
+ * </ul>
+ * Имена полей: <code>template</code>, <code>main</code>, <code>output</code>,
+ * <code>macros</code>, <code>pdf</code>. Пустые строки и строки,
+ * начинающиеся с <code>#</code>, пропускаются. Относительные пути в
+ * заданиях и во включаемых ими документах указываются относительно каталога
+ * файла заданий.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class BatchManifest {
+    public static final String FIELD_TEMPLATE = "template";
+    public static final String FIELD_MAIN = "main";
+    public static final String FIELD_OUTPUT = "output";
+    public static final String FIELD_MACROS = "macros";
+    public static final String FIELD_PDF = "pdf";
+
+    private BatchManifest() {}
+
+    /**
+     * Читает файл заданий.
+     *
+     * @param path путь к файлу заданий
+     * @return список заданий в порядке их следования в файле
+     * @throws IOException ошибка при чтении файла
+     * @throws IllegalArgumentException ошибка в формате файла
+     */
+    public static List<BatchJob> read(String path) throws IOException {
+        List<String> lines = Files.readAllLines(Path.of(path), StandardCharsets.UTF_8);
+
+        List<BatchJob> jobs;
+        if (path.toLowerCase(Locale.ROOT).endsWith(".csv"))
+            jobs = readCSV(lines);
+        else
+            jobs = readJSONL(lines);
+
+        Path baseDir = Path.of(path).getParent();
+        if (baseDir != null) {
+            for (BatchJob job : jobs)
+                resolvePaths(job, baseDir);
+        }
+        return jobs;
+    }
+
+    /**
+     * Разбирает одно задание, записанное в виде JSON-объекта.
+     *
+     * @param json JSON-объект с заданием
+     * @return задание
+     * @throws IllegalArgumentException ошибка в формате задания
+     */
+    public static BatchJob parseJob(String json) {
+        return createJob(parseJSONObject(json.trim(), 1), 1);
+    }
+
+    private static boolean isSkipped(String line) {
+        String trimmed = line.trim();
+        return trimmed.isEmpty() || trimmed.startsWith("#");
+    }
+
+    private static List<BatchJob> readCSV(List<String> lines) {
+        List<BatchJob> jobs = new ArrayList<>();
+        List<String> header = null;
+
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (isSkipped(line))
+                continue;
+
+            List<String> fields = parseCSVLine(line, i + 1);
+            if (header == null) {
+                header = new ArrayList<>();
+                for (String f : fields)
+                    header.add(f.trim().toLowerCase(Locale.ROOT));
+                continue;
+            }
+
+            Map<String, String> values = new HashMap<>();
+            for (int j = 0; j < header.size() && j < fields.size(); j++)
+                values.put(header.get(j), fields.get(j).trim());
+
+            jobs.add(createJob(values, i + 1));
+        }
+
+        return jobs;
+    }
+
+    private static List<String> parseCSVLine(String line, int lineNo) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                }
+                else if (c == '"') {
+                    quoted = false;
+                }
+                else {
+                    field.append(c);
+                }
+            }
+            else if (c == '"') {
+                quoted = true;
+            }
+            else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else {
+                field.append(c);
+            }
+        }
+
+        if (quoted)
+            throw new IllegalArgumentException("Line " + lineNo + ": unterminated quoted field");
+
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static List<BatchJob> readJSONL(List<String> lines) {
+        List<BatchJob> jobs = new ArrayList<>();
+
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (isSkipped(line))
+                continue;
+
+            jobs.add(createJob(parseJSONObject(line, i + 1), i + 1));
+        }
+
+        return jobs;
+    }
+
+    /**
+     * Разбирает плоский JSON-объект, значения которого &mdash; строки,
+     * числа, логические значения или <code>null</code>.
+     *
+     * @param line строка с объектом
+     * @param lineNo номер строки (для сообщений об ошибках)
+     * @return словарь значений в строковом виде
+     */
+    static Map<String, String> parseJSONObject(String line, int lineNo) {
+        Map<String, String> values = new HashMap<>();
+        int[] pos = new int[] {skipSpaces(line, 0)};
+
+        expect(line, pos, '{', lineNo);
+        pos[0] = skipSpaces(line, pos[0]);
+        if (pos[0] < line.length() && line.charAt(pos[0]) == '}') {
+            pos[0]++;
+        }
+        else {
+            while (true) {
+                pos[0] = skipSpaces(line, pos[0]);
+                String key = parseJSONString(line, pos, lineNo);
+                pos[0] = skipSpaces(line, pos[0]);
+                expect(line, pos, ':', lineNo);
+                pos[0] = skipSpaces(line, pos[0]);
+                String value = parseJSONValue(line, pos, lineNo);
+                if (value != null)
+                    values.put(key.toLowerCase(Locale.ROOT), value);
+
+                pos[0] = skipSpaces(line, pos[0]);
+                if (pos[0] < line.length() && line.charAt(pos[0]) == ',') {
+                    pos[0]++;
+                    continue;
+                }
+                expect(line, pos, '}', lineNo);
+                break;
+            }
+        }
+
+        if (skipSpaces(line, pos[0]) != line.length())
+            throw new IllegalArgumentException("Line " + lineNo + ": trailing characters after JSON object");
+
+        return values;
+    }
+
+    private static int skipSpaces(String s, int pos) {
+        while (pos < s.length() && Character.isWhitespace(s.charAt(pos)))
+            pos++;
+        return pos;
+    }
+
+    private static void expect(String s, int[] pos, char c, int lineNo) {
+        if (pos[0] >= s.length() || s.charAt(pos[0]) != c)
+            throw new IllegalArgumentException("Line " + lineNo + ": expected '" + c + "' at column " + (pos[0] + 1));
+        pos[0]++;
+    }
+
+    private static String parseJSONValue(String s, int[] pos, int lineNo) {
+        if (pos[0] < s.length() && s.charAt(pos[0]) == '"')
+            return parseJSONString(s, pos, lineNo);
+
+        int start = pos[0];
+        while (pos[0] < s.length() && ",}".indexOf(s.charAt(pos[0])) < 0
+                && !Character.isWhitespace(s.charAt(pos[0])))
+            pos[0]++;
+
+        String literal = s.substring(start, pos[0]);
+        if (literal.isEmpty())
+            throw new IllegalArgumentException("Line " + lineNo + ": expected value at column " + (start + 1));
+        if (literal.equals("null"))
+            return null;
+        return literal;
+    }
+
+    private static String parseJSONString(String s, int[] pos, int lineNo) {
+        expect(s, pos, '"', lineNo);
+        StringBuilder sb = new StringBuilder();
+
+        while (pos[0] < s.length()) {
+            char c = s.charAt(pos[0]++);
+            if (c == '"')
+                return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos[0] >= s.length())
+                break;
+
+            char e = s.charAt(pos[0]++);
+            switch (e) {
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (pos[0] + 4 > s.length())
+                        throw new IllegalArgumentException("Line " + lineNo + ": invalid unicode escape");
+                    sb.append((char) Integer.parseInt(s.substring(pos[0], pos[0] + 4), 16));
+                    pos[0] += 4;
+                }
+                default -> sb.append(e);
+            }
+        }
+
+        throw new IllegalArgumentException("Line " + lineNo + ": unterminated string");
+    }
+
+    private static BatchJob createJob(Map<String, String> values, int lineNo) {
+        BatchJob job = new BatchJob();
+
+        job.setTemplatePath(requireField(values, FIELD_TEMPLATE, lineNo));
+        job.setMainTextPath(requireField(values, FIELD_MAIN, lineNo));
+        job.setOutputPath(requireField(values, FIELD_OUTPUT, lineNo));
+
+        String macros = values.get(FIELD_MACROS);
+        if (macros != null && !macros.isEmpty())
+            job.setMacroFile(macros);
+
+        String pdf = values.get(FIELD_PDF);
+        if (pdf != null && !pdf.isEmpty())
+            job.setShouldGeneratePDF(parseBoolean(pdf, lineNo));
+
+        return job;
+    }
+
+    private static void resolvePaths(BatchJob job, Path baseDir) {
+        job.setBaseDirectory(baseDir.toFile());
+        job.setTemplatePath(baseDir.resolve(job.getTemplatePath()).toString());
+        job.setMainTextPath(baseDir.resolve(job.getMainTextPath()).toString());
+        job.setOutputPath(baseDir.resolve(job.getOutputPath()).toString());
+        if (job.getMacroFile() != null)
+            job.setMacroFile(baseDir.resolve(job.getMacroFile()).toString());
+    }
+
+    private static String requireField(Map<String, String> values, String name, int lineNo) {
+        String value = values.get(name);
+        if (value == null || value.isEmpty())
+            throw new IllegalArgumentException("Line " + lineNo + ": field '" + name + "' is missing");
+        return value;
+    }
+
+    private static boolean parseBoolean(String value, int lineNo) {
+        String v = value.toLowerCase(Locale.ROOT);
+        if (v.equals("true") || v.equals("yes") || v.equals("1"))
+            return true;
+        if (v.equals("false") || v.equals("no") || v.equals("0"))
+            return false;
+
+        throw new IllegalArgumentException("Line " + lineNo + ": invalid boolean value '" + value + "'");
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.cli;
+
+import ru.danilakondr.templater.Templater;
+import ru.danilakondr.templater.metrics.MetricsWriter;
+import ru.danilakondr.templater.progress.ProgressListener;
+import ru.danilakondr.templater.pool.OfficeWorkerPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пакетный обработчик документов. Задания распределяются между рабочими
+ * процессами LibreOffice из пула, для каждого задания создаётся отдельный
+ * объект {@link Templater}.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class BatchRunner {
+    private final OfficeWorkerPool pool;
+    private final CommandLineArgs defaults;
+    private final JobExecutor executor;
+    private final BatchStatistics statistics;
+
+    /**
+     * Создаёт пакетный обработчик.
+     *
+     * @param pool запущенный пул рабочих процессов LibreOffice
+     * @param defaults аргументы командной строки, которые применяются ко
+     *                 всем заданиям (макросы, встраивание шрифтов и т. д.)
+     */
+    public BatchRunner(OfficeWorkerPool pool, CommandLineArgs defaults) {
+        this.pool = pool;
+        this.defaults = defaults;
+        this.executor = new JobExecutor(defaults);
+        this.statistics = new BatchStatistics();
+    }
+
+    public BatchStatistics getStatistics() {
+        return statistics;
+    }
+
+    public void setMetricsWriter(MetricsWriter metricsWriter) {
+        executor.setMetricsWriter(metricsWriter);
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        executor.setProgressListener(progressListener);
+    }
+
+    /**
+     * Выполняет все задания. Одновременно выполняется столько заданий,
+     * сколько рабочих процессов в пуле.
+     *
+     * @param jobs список заданий
+     * @return <code>true</code>, если все задания выполнены успешно
+     */
+    public boolean run(List<BatchJob> jobs) {
+        statistics.start();
+
+        ExecutorService threads = Executors.newFixedThreadPool(pool.size());
+        AtomicInteger done = new AtomicInteger(0);
+        List<Future<?>> results = new ArrayList<>();
+
+        for (BatchJob job : jobs) {
+            results.add(threads.submit(() -> {
+                long start = System.nanoTime();
+                String error;
+                try {
+                    error = pool.execute(worker -> executor.execute(job, worker,
+                            defaults.isShouldBeVerbose() ? System.out : null));
+                }
+                catch (Exception e) {
+                    error = e.getMessage() != null ? e.getMessage() : e.toString();
+                }
+                long elapsed = System.nanoTime() - start;
+
+                statistics.addJob(elapsed, error == null);
+                int n = done.incrementAndGet();
+                if (error == null)
+                    System.out.printf("[%d/%d] OK %s (%.1f s)%n",
+                            n, jobs.size(), job, elapsed / 1e9);
+                else
+                    System.out.printf("[%d/%d] FAILED %s: %s%n",
+                            n, jobs.size(), job, error);
+            }));
+        }
+
+        for (Future<?> f : results) {
+            try {
+                f.get();
+            }
+            catch (Exception e) {
+                e.printStackTrace(System.err);
+            }
+        }
+        threads.shutdown();
+
+        statistics.finish();
+        statistics.setRestarts(pool.getRestartCount());
+        return statistics.getFailed() == 0;
+    }
+}
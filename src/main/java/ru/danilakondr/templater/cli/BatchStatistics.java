@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.cli;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Статистика пакетной обработки: число успешных и неудачных заданий,
+ * пропускная способность и задержка обработки одного задания.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class BatchStatistics {
+    private final List<Long> latencies = new ArrayList<>();
+    private int succeeded = 0;
+    private int failed = 0;
+    private long startTime;
+    private long endTime;
+    private int restarts = 0;
+
+    public synchronized void start() {
+        startTime = System.nanoTime();
+    }
+
+    public synchronized void finish() {
+        endTime = System.nanoTime();
+    }
+
+    /**
+     * Учитывает завершённое задание.
+     *
+     * @param nanos время обработки задания в наносекундах
+     * @param success признак успешного завершения
+     */
+    public synchronized void addJob(long nanos, boolean success) {
+        latencies.add(nanos);
+        if (success)
+            succeeded++;
+        else
+            failed++;
+    }
+
+    public synchronized void setRestarts(int restarts) {
+        this.restarts = restarts;
+    }
+
+    public synchronized int getSucceeded() {
+        return succeeded;
+    }
+
+    public synchronized int getFailed() {
+        return failed;
+    }
+
+    /**
+     * Вычисляет перцентиль задержки методом ближайшего ранга.
+     *
+     * @param p перцентиль (от 0 до 100)
+     * @return задержка в наносекундах
+     */
+    public synchronized long percentile(double p) {
+        if (latencies.isEmpty())
+            return 0;
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+
+        int rank = (int) Math.ceil(p / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, rank - 1)));
+    }
+
+    public synchronized void print(PrintStream out) {
+        int total = succeeded + failed;
+        double minutes = (endTime - startTime) / 60e9;
+        double throughput = minutes > 0 ? total / minutes : 0;
+
+        out.printf("Processed %d documents: %d succeeded, %d failed%n", total, succeeded, failed);
+        out.printf("Total time: %.1f s%n", (endTime - startTime) / 1e9);
+        out.printf("Throughput: %.2f docs/min%n", throughput);
+        out.printf("Latency per job: p50 = %.2f s, p95 = %.2f s%n",
+                percentile(50) / 1e9, percentile(95) / 1e9);
+        if (restarts > 0)
+            out.printf("LibreOffice restarts: %d%n", restarts);
+    }
+}
@@ -19,9 +19,14 @@
 
 package ru.danilakondr.templater.cli;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
 import org.apache.commons.cli.*;
+import ru.danilakondr.templater.ExportFormat;
 
 public class CommandLineArgs {
     private String templatePath;
@@ -33,6 +38,21 @@ public class CommandLineArgs {
     private boolean shouldGeneratePDF;
     private final Properties macroOverrides;
     private boolean shouldBeVerbose;
+    private String batchManifest;
+    private int workerCount = 1;
+    private long jobTimeout = 0;
+    private long phaseTimeout = 0;
+    private int serverPort = 0;
+    private int queueSize = 16;
+    private String metricsFile;
+    private String progressEventsFile;
+    private boolean targetedLists;
+    private boolean incremental;
+    private boolean watch;
+    private String profileTemplate;
+    private String createProfile;
+    private String connectEndpoint;
+    private final Set<ExportFormat> exportFormats = EnumSet.noneOf(ExportFormat.class);
 
     public CommandLineArgs() {
         this.macroOverrides = new Properties();
@@ -74,6 +94,113 @@ public class CommandLineArgs {
         return shouldOverwrite;
     }
 
+    public String getBatchManifest() {
+        return batchManifest;
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * Возвращает предельное время выполнения одного задания.
+     *
+     * @return время в секундах (0 &mdash; без ограничения)
+     */
+    public long getJobTimeout() {
+        return jobTimeout;
+    }
+
+    /**
+     * Возвращает предельное время выполнения одного этапа обработки
+     * документа.
+     *
+     * @return время в секундах (0 &mdash; без ограничения)
+     */
+    public long getPhaseTimeout() {
+        return phaseTimeout;
+    }
+
+    /**
+     * Возвращает номер порта, на котором работает сервер.
+     *
+     * @return номер порта (0 &mdash; режим сервера не используется)
+     */
+    public int getServerPort() {
+        return serverPort;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Возвращает путь к файлу, в который записываются показатели обработки
+     * документов.
+     *
+     * @return путь к файлу или <code>null</code>
+     */
+    public String getMetricsFile() {
+        return metricsFile;
+    }
+
+    public String getProgressEventsFile() {
+        return progressEventsFile;
+    }
+
+    public boolean isTargetedLists() {
+        return targetedLists;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public boolean isWatch() {
+        return watch;
+    }
+
+    /**
+     * Возвращает директорию снимка профиля LibreOffice, с копией которого
+     * запускается LibreOffice.
+     *
+     * @return путь к директории или <code>null</code>
+     */
+    public String getProfileTemplate() {
+        return profileTemplate;
+    }
+
+    /**
+     * Возвращает директорию, в которой нужно создать снимок профиля
+     * LibreOffice.
+     *
+     * @return путь к директории или <code>null</code>, если документ
+     * обрабатывается обычным образом
+     */
+    public String getCreateProfile() {
+        return createProfile;
+    }
+
+    /**
+     * Возвращает адрес UNO уже запущенного LibreOffice, к которому
+     * подключается программа.
+     *
+     * @return адрес UNO или <code>null</code>
+     */
+    public String getConnectEndpoint() {
+        return connectEndpoint;
+    }
+
+    /**
+     * Возвращает дополнительные форматы, в которые экспортируется каждый
+     * документ после сохранения.
+     *
+     * @return множество форматов
+     */
+    public Set<ExportFormat> getExportFormats() {
+        return exportFormats;
+    }
+
     public void setMacroFile(String macroFile) {
         this.macroFile = macroFile;
     }
@@ -106,6 +233,62 @@ public class CommandLineArgs {
         this.templatePath = templatePath;
     }
 
+    public void setBatchManifest(String batchManifest) {
+        this.batchManifest = batchManifest;
+    }
+
+    public void setWorkerCount(int workerCount) {
+        this.workerCount = workerCount;
+    }
+
+    public void setJobTimeout(long jobTimeout) {
+        this.jobTimeout = jobTimeout;
+    }
+
+    public void setPhaseTimeout(long phaseTimeout) {
+        this.phaseTimeout = phaseTimeout;
+    }
+
+    public void setServerPort(int serverPort) {
+        this.serverPort = serverPort;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public void setMetricsFile(String metricsFile) {
+        this.metricsFile = metricsFile;
+    }
+
+    public void setProgressEventsFile(String progressEventsFile) {
+        this.progressEventsFile = progressEventsFile;
+    }
+
+    public void setTargetedLists(boolean targetedLists) {
+        this.targetedLists = targetedLists;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public void setWatch(boolean watch) {
+        this.watch = watch;
+    }
+
+    public void setProfileTemplate(String profileTemplate) {
+        this.profileTemplate = profileTemplate;
+    }
+
+    public void setCreateProfile(String createProfile) {
+        this.createProfile = createProfile;
+    }
+
+    public void setConnectEndpoint(String connectEndpoint) {
+        this.connectEndpoint = connectEndpoint;
+    }
+
     public void addMacroOverride(String key, String value) {
         macroOverrides.put(key, value);
     }
@@ -122,6 +305,21 @@ public class CommandLineArgs {
         private static final Option OPTION_VERBOSE;
         private static final Option OPTION_SHOW_HELP;
         private static final Option OPTION_VERSION;
+        private static final Option OPTION_BATCH;
+        private static final Option OPTION_WORKERS;
+        private static final Option OPTION_JOB_TIMEOUT;
+        private static final Option OPTION_PHASE_TIMEOUT;
+        private static final Option OPTION_SERVER;
+        private static final Option OPTION_QUEUE;
+        private static final Option OPTION_METRICS;
+        private static final Option OPTION_PROGRESS_EVENTS;
+        private static final Option OPTION_FAST_LISTS;
+        private static final Option OPTION_EXPORT;
+        private static final Option OPTION_INCREMENTAL;
+        private static final Option OPTION_WATCH;
+        private static final Option OPTION_PROFILE_TEMPLATE;
+        private static final Option OPTION_CREATE_PROFILE;
+        private static final Option OPTION_CONNECT;
         private static final Options opts;
 
         static {
@@ -130,7 +328,6 @@ public class CommandLineArgs {
                     .argName("TEMPLATE")
                     .desc("Template file")
                     .hasArg()
-                    .required()
                     .build();
 
             OPTION_MAIN_TEXT = Option.builder("m")
@@ -138,7 +335,6 @@ public class CommandLineArgs {
                     .argName("MAINFILE")
                     .desc("Main text file")
                     .hasArg()
-                    .required()
                     .build();
 
             OPTION_OUTPUT = Option.builder("o")
@@ -146,7 +342,6 @@ public class CommandLineArgs {
                     .argName("OUTFILE")
                     .desc("Output file")
                     .hasArg()
-                    .required()
                     .build();
 
             OPTION_MACRO_FILE = Option.builder("M")
@@ -193,6 +388,106 @@ public class CommandLineArgs {
                     .desc("Show version of program")
                     .build();
 
+            OPTION_BATCH = Option.builder("b")
+                    .longOpt("batch")
+                    .argName("MANIFEST")
+                    .desc("Process jobs from CSV/JSONL manifest")
+                    .hasArg()
+                    .build();
+
+            OPTION_WORKERS = Option.builder("w")
+                    .longOpt("workers")
+                    .argName("N")
+                    .desc("Number of LibreOffice processes in batch mode")
+                    .hasArg()
+                    .build();
+
+            OPTION_JOB_TIMEOUT = Option.builder()
+                    .longOpt("job-timeout")
+                    .argName("SECONDS")
+                    .desc("Restart LibreOffice if a job takes longer")
+                    .hasArg()
+                    .build();
+
+            OPTION_PHASE_TIMEOUT = Option.builder()
+                    .longOpt("phase-timeout")
+                    .argName("SECONDS")
+                    .desc("Fail the job and restart LibreOffice if a processing phase takes longer")
+                    .hasArg()
+                    .build();
+
+            OPTION_SERVER = Option.builder("S")
+                    .longOpt("server")
+                    .argName("PORT")
+                    .desc("Run as a server accepting jobs on 127.0.0.1:PORT")
+                    .hasArg()
+                    .build();
+
+            OPTION_QUEUE = Option.builder()
+                    .longOpt("queue")
+                    .argName("N")
+                    .desc("Number of jobs waiting for a free process in server mode")
+                    .hasArg()
+                    .build();
+
+            OPTION_METRICS = Option.builder()
+                    .longOpt("metrics")
+                    .argName("FILE")
+                    .desc("Write per-phase metrics of each document to FILE (JSON Lines)")
+                    .hasArg()
+                    .build();
+
+            OPTION_PROGRESS_EVENTS = Option.builder()
+                    .longOpt("progress-events")
+                    .argName("FILE")
+                    .desc("Write progress events to FILE (JSON Lines)")
+                    .hasArg()
+                    .build();
+
+            OPTION_FAST_LISTS = Option.builder()
+                    .longOpt("fast-lists")
+                    .desc("Process only paragraphs of lists instead of all paragraphs")
+                    .build();
+
+            OPTION_EXPORT = Option.builder()
+                    .longOpt("export")
+                    .argName("FORMATS")
+                    .desc("Also export to comma-separated formats: odt, docx, pdf, pdfa")
+                    .hasArg()
+                    .build();
+
+            OPTION_INCREMENTAL = Option.builder()
+                    .longOpt("incremental")
+                    .desc("Skip documents whose inputs have not changed since the last build")
+                    .build();
+
+            OPTION_WATCH = Option.builder()
+                    .longOpt("watch")
+                    .desc("Rebuild the document whenever the template, main text, macro file or included files change")
+                    .build();
+
+            OPTION_PROFILE_TEMPLATE = Option.builder()
+                    .longOpt("profile-template")
+                    .argName("DIR")
+                    .desc("Start LibreOffice with a copy of the profile snapshot in DIR")
+                    .hasArg()
+                    .build();
+
+            OPTION_CREATE_PROFILE = Option.builder()
+                    .longOpt("create-profile")
+                    .argName("DIR")
+                    .desc("Create a LibreOffice profile snapshot in DIR and exit")
+                    .hasArg()
+                    .build();
+
+            OPTION_CONNECT = Option.builder()
+                    .longOpt("connect")
+                    .argName("ENDPOINT")
+                    .desc("Use LibreOffice listening on the UNO ENDPOINT (e.g. socket,host=localhost,port=2002); "
+                            + "start it there if none is running and leave it running")
+                    .hasArg()
+                    .build();
+
             opts = new Options()
                     .addOption(OPTION_TEMPLATE)
                     .addOption(OPTION_MAIN_TEXT)
@@ -205,6 +500,21 @@ public class CommandLineArgs {
                     .addOption(OPTION_VERBOSE)
                     .addOption(OPTION_SHOW_HELP)
                     .addOption(OPTION_VERSION)
+                    .addOption(OPTION_BATCH)
+                    .addOption(OPTION_WORKERS)
+                    .addOption(OPTION_JOB_TIMEOUT)
+                    .addOption(OPTION_PHASE_TIMEOUT)
+                    .addOption(OPTION_SERVER)
+                    .addOption(OPTION_QUEUE)
+                    .addOption(OPTION_METRICS)
+                    .addOption(OPTION_PROGRESS_EVENTS)
+                    .addOption(OPTION_FAST_LISTS)
+                    .addOption(OPTION_EXPORT)
+                    .addOption(OPTION_INCREMENTAL)
+                    .addOption(OPTION_WATCH)
+                    .addOption(OPTION_PROFILE_TEMPLATE)
+                    .addOption(OPTION_CREATE_PROFILE)
+                    .addOption(OPTION_CONNECT)
                     ;
         }
 
@@ -223,12 +533,52 @@ public class CommandLineArgs {
                 result.setShouldBeVerbose(cmd.hasOption(OPTION_VERBOSE));
                 result.setShouldGeneratePDF(cmd.hasOption(OPTION_GENERATE_PDF));
                 result.setShouldEmbedFonts(cmd.hasOption(OPTION_EMBED_FONTS));
+                result.setTargetedLists(cmd.hasOption(OPTION_FAST_LISTS));
+                result.setIncremental(cmd.hasOption(OPTION_INCREMENTAL));
+                result.setWatch(cmd.hasOption(OPTION_WATCH));
 
                 if (cmd.hasOption(OPTION_MACRO_DEF)) {
                     Properties p = cmd.getOptionProperties(OPTION_MACRO_DEF);
                     result.getMacroOverrides().putAll(p);
                 }
 
+                if (cmd.hasOption(OPTION_WORKERS))
+                    result.setWorkerCount(parsePositive(cmd, OPTION_WORKERS));
+                // Задания ограничиваются по времени только рабочими процессами
+                if ((cmd.hasOption(OPTION_JOB_TIMEOUT) || cmd.hasOption(OPTION_PHASE_TIMEOUT))
+                        && !cmd.hasOption(OPTION_BATCH) && !cmd.hasOption(OPTION_SERVER) && !cmd.hasOption(OPTION_WATCH))
+                    throw new ParseException("--job-timeout and --phase-timeout require --batch, --server or --watch");
+                if (cmd.hasOption(OPTION_JOB_TIMEOUT))
+                    result.setJobTimeout(parsePositive(cmd, OPTION_JOB_TIMEOUT));
+                if (cmd.hasOption(OPTION_PHASE_TIMEOUT))
+                    result.setPhaseTimeout(parsePositive(cmd, OPTION_PHASE_TIMEOUT));
+
+                if (cmd.hasOption(OPTION_QUEUE))
+                    result.setQueueSize(parsePositive(cmd, OPTION_QUEUE));
+                if (cmd.hasOption(OPTION_EXPORT))
+                    result.getExportFormats().addAll(parseFormats(cmd, OPTION_EXPORT));
+                if (cmd.hasOption(OPTION_METRICS))
+                    result.setMetricsFile(cmd.getOptionValue(OPTION_METRICS));
+                if (cmd.hasOption(OPTION_PROGRESS_EVENTS))
+                    result.setProgressEventsFile(cmd.getOptionValue(OPTION_PROGRESS_EVENTS));
+                if (cmd.hasOption(OPTION_PROFILE_TEMPLATE))
+                    result.setProfileTemplate(cmd.getOptionValue(OPTION_PROFILE_TEMPLATE));
+
+                if (cmd.hasOption(OPTION_CONNECT)) {
+                    if (cmd.hasOption(OPTION_BATCH) || cmd.hasOption(OPTION_SERVER) || cmd.hasOption(OPTION_WATCH))
+                        throw new ParseException("--connect cannot be used with --batch, --server or --watch");
+                    result.setConnectEndpoint(cmd.getOptionValue(OPTION_CONNECT));
+                }
+
+                if (cmd.hasOption(OPTION_CREATE_PROFILE))
+                    result.setCreateProfile(cmd.getOptionValue(OPTION_CREATE_PROFILE));
+                else if (cmd.hasOption(OPTION_BATCH))
+                    result.setBatchManifest(cmd.getOptionValue(OPTION_BATCH));
+                else if (cmd.hasOption(OPTION_SERVER))
+                    result.setServerPort(parsePositive(cmd, OPTION_SERVER));
+                else
+                    checkRequired(cmd, OPTION_TEMPLATE, OPTION_MAIN_TEXT, OPTION_OUTPUT);
+
                 return result;
             }
             catch (ParseException e) {
@@ -236,6 +586,49 @@ public class CommandLineArgs {
             }
         }
 
+        private static int parsePositive(CommandLine cmd, Option o) throws ParseException {
+            String value = cmd.getOptionValue(o);
+            try {
+                int n = Integer.parseInt(value);
+                if (n > 0)
+                    return n;
+            }
+            catch (NumberFormatException ignored) {}
+
+            throw new ParseException("Invalid value of --" + o.getLongOpt() + ": " + value);
+        }
+
+        private static Set<ExportFormat> parseFormats(CommandLine cmd, Option o) throws ParseException {
+            Set<ExportFormat> formats = EnumSet.noneOf(ExportFormat.class);
+            try {
+                for (String name : cmd.getOptionValue(o).split(","))
+                    formats.add(ExportFormat.parse(name));
+            }
+            catch (IllegalArgumentException e) {
+                throw new ParseException(e.getMessage());
+            }
+
+            return formats;
+        }
+
+        /**
+         * Проверяет наличие обязательных ключей. Ключи шаблона, основного
+         * текста и итогового файла обязательны только при обработке одного
+         * документа (не в пакетном режиме, не в режиме сервера и не при
+         * создании снимка профиля), поэтому
+         * проверяются отдельно от разбора.
+         */
+        private static void checkRequired(CommandLine cmd, Option... required) throws MissingOptionException {
+            List<String> missing = new ArrayList<>();
+            for (Option o : required) {
+                if (!cmd.hasOption(o))
+                    missing.add(o.getOpt());
+            }
+
+            if (!missing.isEmpty())
+                throw new MissingOptionException(missing);
+        }
+
         public static void printHelp() {
             HelpFormatter formatter = new HelpFormatter();
             formatter.printHelp("templater", opts, true);
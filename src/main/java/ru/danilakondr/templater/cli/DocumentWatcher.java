@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.cli;
+
+import ru.danilakondr.templater.pool.OfficeWorkerPool;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Наблюдатель за исходными файлами документа. При изменении шаблона,
+ * основного текста, файла макросов или вставленных файлов документ
+ * собирается заново на уже запущенном процессе LibreOffice.
+ * <p>
+ * Наблюдение ведётся за директориями, в которых находятся файлы, поэтому
+ * замена файла переименованием (так сохраняют файлы многие редакторы) тоже
+ * обнаруживается. Серия изменений, следующих друг за другом с интервалом
+ * меньше заданного, приводит к одной пересборке. Список вставленных файлов
+ * обновляется после каждой сборки.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class DocumentWatcher implements Closeable {
+    public static final long DEFAULT_DEBOUNCE = 300;
+
+    private final OfficeWorkerPool pool;
+    private final JobExecutor executor;
+    private final CommandLineArgs args;
+    private final BatchJob job;
+    private final WatchService watchService;
+    private final Map<Path, WatchKey> keys = new HashMap<>();
+    private final Set<Path> watched = new LinkedHashSet<>();
+    private long debounce = DEFAULT_DEBOUNCE;
+
+    /**
+     * Создаёт наблюдатель.
+     *
+     * @param pool запущенный пул процессов LibreOffice
+     * @param executor исполнитель заданий
+     * @param args аргументы командной строки
+     * @throws IOException ошибка при создании службы наблюдения
+     */
+    public DocumentWatcher(OfficeWorkerPool pool, JobExecutor executor, CommandLineArgs args)
+            throws IOException {
+        this.pool = pool;
+        this.executor = executor;
+        this.args = args;
+        this.job = new BatchJob();
+        this.job.setTemplatePath(args.getTemplatePath());
+        this.job.setMainTextPath(args.getMainTextPath());
+        this.job.setOutputPath(args.getOutputPath());
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Устанавливает время, в течение которого после изменения файла
+     * ожидаются следующие изменения.
+     *
+     * @param millis время в миллисекундах
+     */
+    public void setDebounce(long millis) {
+        this.debounce = millis;
+    }
+
+    /**
+     * Собирает документ и затем пересобирает его при каждом изменении
+     * исходных файлов. Работает до закрытия наблюдателя или прерывания
+     * потока.
+     *
+     * @throws IOException ошибка при наблюдении за директорией
+     */
+    public void run() throws IOException {
+        try {
+            // Изменения во время сборки тоже приводят к пересборке
+            updateWatched();
+            while (true) {
+                build();
+                updateWatched();
+                System.out.printf("Watching %d files for changes%n", watched.size());
+
+                waitForChange();
+            }
+        }
+        catch (ClosedWatchServiceException | InterruptedException ignored) {}
+    }
+
+    /**
+     * Собирает документ один раз.
+     */
+    private void build() {
+        long start = System.nanoTime();
+        String error;
+        try {
+            error = pool.execute(worker -> executor.execute(job, worker,
+                    args.isShouldBeVerbose() ? System.out : null));
+        }
+        catch (Exception e) {
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (error == null)
+            System.out.printf("OK %s (%.1f s)%n", job, elapsed / 1e9);
+        else
+            System.out.printf("FAILED %s: %s%n", job, error);
+    }
+
+    /**
+     * Обновляет список файлов, за которыми ведётся наблюдение, и
+     * регистрирует их директории.
+     */
+    private void updateWatched() throws IOException {
+        watched.clear();
+        watched.add(normalize(new File(args.getTemplatePath())));
+        watched.add(normalize(new File(args.getMainTextPath())));
+        if (args.getMacroFile() != null)
+            watched.add(normalize(new File(args.getMacroFile())));
+        for (File f : job.getIncludedFiles())
+            watched.add(normalize(f));
+
+        for (Path file : watched) {
+            Path dir = file.getParent();
+            if (!keys.containsKey(dir))
+                keys.put(dir, dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY));
+        }
+    }
+
+    private static Path normalize(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+
+    /**
+     * Ожидает изменения одного из файлов, а затем &mdash; окончания серии
+     * изменений.
+     */
+    private void waitForChange() throws InterruptedException {
+        Path changed = null;
+        while (changed == null)
+            changed = changedFile(watchService.take());
+
+        System.out.printf("%s changed, rebuilding%n", changed);
+        WatchKey key;
+        while ((key = watchService.poll(debounce, TimeUnit.MILLISECONDS)) != null)
+            changedFile(key);
+    }
+
+    /**
+     * Разбирает события директории и возвращает первый изменённый файл из
+     * числа наблюдаемых или <code>null</code>, если таких нет.
+     */
+    private Path changedFile(WatchKey key) {
+        Path dir = (Path) key.watchable();
+        Path changed = null;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                changed = dir;
+                continue;
+            }
+
+            Path file = dir.resolve((Path) event.context());
+            if (changed == null && watched.contains(file))
+                changed = file;
+        }
+
+        if (!key.reset())
+            keys.remove(dir);
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
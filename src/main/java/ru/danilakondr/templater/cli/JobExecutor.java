@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.cli;
+
+import ru.danilakondr.templater.ExportFormat;
+import ru.danilakondr.templater.Templater;
+import ru.danilakondr.templater.metrics.MetricsWriter;
+import ru.danilakondr.templater.pool.OfficeWorker;
+import ru.danilakondr.templater.pool.PhaseWatchdog;
+import ru.danilakondr.templater.progress.ProgressListener;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Исполнитель одного задания на рабочем процессе LibreOffice. Используется
+ * в пакетном режиме и в режиме сервера.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class JobExecutor {
+    private final CommandLineArgs defaults;
+    private MetricsWriter metricsWriter;
+    private ProgressListener progressListener;
+
+    /**
+     * Создаёт исполнитель заданий.
+     *
+     * @param defaults аргументы командной строки, которые применяются ко
+     *                 всем заданиям (макросы, встраивание шрифтов и т. д.)
+     */
+    public JobExecutor(CommandLineArgs defaults) {
+        this.defaults = defaults;
+    }
+
+    /**
+     * Устанавливает файл, в который записываются показатели обработки
+     * каждого задания.
+     *
+     * @param metricsWriter файл показателей или <code>null</code>
+     */
+    public void setMetricsWriter(MetricsWriter metricsWriter) {
+        this.metricsWriter = metricsWriter;
+    }
+
+    /**
+     * Устанавливает получателя событий процесса обработки всех заданий.
+     *
+     * @param progressListener получатель событий или <code>null</code>
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Выполняет одно задание.
+     *
+     * @param job задание
+     * @param worker рабочий процесс LibreOffice
+     * @param progress поток для сообщений о процессе обработки или
+     *                 <code>null</code>, если их выводить не нужно
+     * @return <code>null</code> в случае успеха или сообщение об ошибке
+     */
+    public String execute(BatchJob job, OfficeWorker worker, PrintStream progress) {
+        Templater templater = new Templater();
+        PhaseWatchdog watchdog = null;
+        if (defaults.getPhaseTimeout() > 0) {
+            watchdog = new PhaseWatchdog(worker, defaults.getPhaseTimeout() * 1000);
+            templater.getMetrics().setPhaseListener(watchdog);
+        }
+
+        boolean built = false;
+        try {
+            templater.setContext(worker.getContext());
+            templater.setDesktop(worker.getDesktop());
+            templater.setIncludeCache(worker.getIncludeCache());
+            templater.setIncludeDirectory(job.getBaseDirectory());
+
+            if (defaults.getMacroFile() != null)
+                templater.loadMacrosFromFile(defaults.getMacroFile());
+            if (job.getMacroFile() != null)
+                templater.loadMacrosFromFile(job.getMacroFile());
+            templater.loadMacrosFromMap(defaults.getMacroOverrides());
+
+            templater.setTemplatePath(job.getTemplatePath());
+            templater.setMainTextPath(job.getMainTextPath());
+            templater.setOutputPath(job.getOutputPath());
+            templater.setVerbose(progress != null);
+            if (progress != null)
+                templater.setProgressOutput(progress);
+            if (progressListener != null)
+                templater.addProgressListener(progressListener);
+            templater.setShouldEmbedFonts(defaults.isShouldEmbedFonts());
+            templater.setTargetedLists(defaults.isTargetedLists());
+            templater.setIncremental(defaults.isIncremental());
+            templater.setShouldOverwrite(true);
+
+            Boolean pdf = job.getShouldGeneratePDF();
+            if (pdf == null ? defaults.isShouldGeneratePDF() : pdf)
+                templater.addExportFormat(ExportFormat.PDF);
+            defaults.getExportFormats().forEach(templater::addExportFormat);
+
+            if (templater.isUpToDate()) {
+                if (progress != null)
+                    progress.printf("%s is up to date%n", job.getOutputPath());
+                return null;
+            }
+            if (new File(job.getOutputPath()).exists() && !defaults.isShouldOverwrite())
+                return job.getOutputPath() + ": file already exists (use -f to overwrite)";
+
+            templater.processDocument();
+            templater.saveDocument();
+            templater.exportDocument();
+            templater.recordBuild();
+            built = true;
+
+            if (watchdog != null && watchdog.hasExpired())
+                return watchdog.getDiagnostic();
+            return null;
+        }
+        catch (FileNotFoundException e) {
+            return e.getMessage() + ": file not found";
+        }
+        catch (Exception e) {
+            // Исключение вызвано завершением зависшего процесса
+            if (watchdog != null && watchdog.hasExpired())
+                return watchdog.getDiagnostic();
+            if (defaults.isShouldBeVerbose())
+                e.printStackTrace(System.err);
+            return e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+        finally {
+            if (watchdog != null)
+                watchdog.close();
+            updateIncludedFiles(job, templater.getIncludedFiles(), built);
+            if (metricsWriter != null && !templater.getMetrics().getPhases().isEmpty())
+                metricsWriter.write(templater.getMetrics());
+            try {
+                templater.closeDocument();
+            }
+            catch (Exception e) {
+                if (watchdog == null || !watchdog.hasExpired())
+                    e.printStackTrace(System.err);
+            }
+        }
+    }
+
+    /**
+     * Запоминает файлы, включённые в документ задания. Если документ не был
+     * собран, список может быть неполным (или пустым), поэтому он
+     * добавляется к прежнему: иначе исправление включаемого файла, на
+     * котором сборка завершилась ошибкой, не запустит её снова.
+     */
+    private static void updateIncludedFiles(BatchJob job, Set<File> files, boolean built) {
+        if (built) {
+            job.setIncludedFiles(files);
+            return;
+        }
+
+        Set<File> merged = new HashSet<>(job.getIncludedFiles());
+        merged.addAll(files);
+        job.setIncludedFiles(merged);
+    }
+}
@@ -20,12 +20,22 @@
 package ru.danilakondr.templater.cli;
 
 import com.sun.star.uno.XComponentContext;
+import ooo.connector.StartupStatistics;
+import ru.danilakondr.templater.ExportFormat;
 import ru.danilakondr.templater.LibreOffice;
 import ru.danilakondr.templater.LibreOfficeException;
 import ru.danilakondr.templater.Templater;
+import ru.danilakondr.templater.metrics.MetricsWriter;
+import ru.danilakondr.templater.pool.OfficeProfile;
+import ru.danilakondr.templater.pool.OfficeWorkerPool;
+import ru.danilakondr.templater.progress.ProgressEventWriter;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import ru.danilakondr.templater.BuildVersion;
 
@@ -66,10 +76,48 @@ public class Main {
             System.exit(-1);
         }
 
+        if (templaterArgs.getCreateProfile() != null)
+            System.exit(createProfile(templaterArgs));
+        if (templaterArgs.getBatchManifest() != null)
+            System.exit(runBatch(templaterArgs));
+        if (templaterArgs.getServerPort() != 0)
+            System.exit(runServer(templaterArgs));
+        if (templaterArgs.isWatch())
+            System.exit(runWatch(templaterArgs));
+
         Templater templater = new Templater();
+        try {
+            configure(templater, templaterArgs);
+        }
+        catch (IOException e) {
+            System.err.printf("%s%n", e);
+            System.exit(-1);
+        }
+
+        // Если документ не изменился, LibreOffice не нужен
+        if (templater.isUpToDate()) {
+            System.out.printf("%s is up to date%n", templaterArgs.getOutputPath());
+            System.exit(0);
+        }
+
         XComponentContext xContext = null;
         try {
-            xContext = LibreOffice.bootstrap();
+            String endpoint = templaterArgs.getConnectEndpoint() != null
+                    ? templaterArgs.getConnectEndpoint()
+                    : LibreOffice.getConnectEndpoint();
+            if (endpoint != null)
+                xContext = LibreOffice.attach(endpoint);
+
+            if (xContext != null) {
+                if (templaterArgs.isShouldBeVerbose())
+                    System.out.printf("Connected to LibreOffice at %s%n", endpoint);
+            }
+            else {
+                xContext = LibreOffice.bootstrap(endpoint, getProfileTemplate(templaterArgs));
+                if (templaterArgs.isShouldBeVerbose())
+                    System.out.printf("LibreOffice started in %d ms%n",
+                            StartupStatistics.getLast() / 1000000);
+            }
             templater.setContext(xContext);
         }
         catch (LibreOfficeException e) {
@@ -90,27 +138,16 @@ public class Main {
         }
 
         int status = 0;
+        ProgressEventWriter events = null;
         try {
-            try {
-                templater.loadMacrosFromFile(templaterArgs.getMacroFile());
-            }
-            catch (FileNotFoundException e) {
-                System.err.printf("%s: file not found, skipping%n", e.getMessage());
-            }
-            catch (NullPointerException ignored) {}
-
-            templater.loadMacrosFromMap(templaterArgs.getMacroOverrides());
-            templater.setMainTextPath(templaterArgs.getMainTextPath());
-            templater.setTemplatePath(templaterArgs.getTemplatePath());
-            templater.setOutputPath(templaterArgs.getOutputPath());
-            templater.setVerbose(templaterArgs.isShouldBeVerbose());
-            templater.setShouldEmbedFonts(templaterArgs.isShouldEmbedFonts());
-            templater.setShouldOverwrite(templaterArgs.isShouldOverwrite());
+            events = openProgressEvents(templaterArgs);
+            if (events != null)
+                templater.addProgressListener(events);
 
             templater.processDocument();
             templater.saveDocument();
-            if (templaterArgs.isShouldOverwrite())
-                templater.generatePDF();
+            templater.exportDocument();
+            templater.recordBuild();
         }
         catch (IllegalArgumentException e) {
             System.err.println("Invalid argument: " + e.getMessage());
@@ -127,13 +164,278 @@ public class Main {
             status = 1;
         }
         finally {
+            writeMetrics(templaterArgs.getMetricsFile(), templater);
             try {
                 templater.closeDocument();
             }
             catch (Exception e) {
                 e.printStackTrace(System.err);
             }
+            if (events != null)
+                events.close();
             System.exit(status);
         }
     }
+
+    /**
+     * Передаёт обработчику документа параметры командной строки. Обращений к
+     * LibreOffice при этом нет.
+     *
+     * @param templater обработчик документа
+     * @param args параметры командной строки
+     */
+    private static void configure(Templater templater, CommandLineArgs args) throws IOException {
+        try {
+            templater.loadMacrosFromFile(args.getMacroFile());
+        }
+        catch (FileNotFoundException e) {
+            System.err.printf("%s: file not found, skipping%n", e.getMessage());
+        }
+        catch (NullPointerException ignored) {}
+
+        templater.loadMacrosFromMap(args.getMacroOverrides());
+        templater.setMainTextPath(args.getMainTextPath());
+        templater.setTemplatePath(args.getTemplatePath());
+        templater.setOutputPath(args.getOutputPath());
+        templater.setVerbose(args.isShouldBeVerbose());
+        templater.setShouldEmbedFonts(args.isShouldEmbedFonts());
+        templater.setTargetedLists(args.isTargetedLists());
+        templater.setIncremental(args.isIncremental());
+        templater.setShouldOverwrite(args.isShouldOverwrite());
+
+        if (args.isShouldGeneratePDF())
+            templater.addExportFormat(ExportFormat.PDF);
+        args.getExportFormats().forEach(templater::addExportFormat);
+    }
+
+    /**
+     * Записывает показатели обработки документа в файл, если он указан.
+     *
+     * @param path путь к файлу показателей или <code>null</code>
+     * @param templater обработчик документа
+     */
+    private static void writeMetrics(String path, Templater templater) {
+        if (path == null || templater.getMetrics().getPhases().isEmpty())
+            return;
+
+        try (MetricsWriter writer = new MetricsWriter(path)) {
+            writer.write(templater.getMetrics());
+        }
+        catch (IOException e) {
+            System.err.printf("%s: %s%n", path, e);
+        }
+    }
+
+    /**
+     * Открывает файл показателей обработки, если он указан.
+     *
+     * @param args аргументы командной строки
+     * @return файл показателей или <code>null</code>
+     */
+    private static MetricsWriter openMetrics(CommandLineArgs args) throws IOException {
+        return args.getMetricsFile() != null ? new MetricsWriter(args.getMetricsFile()) : null;
+    }
+
+    /**
+     * Открывает файл событий процесса обработки, если он указан.
+     *
+     * @param args аргументы командной строки
+     * @return файл событий или <code>null</code>
+     */
+    private static ProgressEventWriter openProgressEvents(CommandLineArgs args) throws IOException {
+        return args.getProgressEventsFile() != null ? new ProgressEventWriter(args.getProgressEventsFile()) : null;
+    }
+
+    /**
+     * Возвращает директорию снимка профиля LibreOffice: из ключа
+     * <code>--profile-template</code> или из настроек LibreOffice.
+     *
+     * @param args аргументы командной строки
+     * @return директория снимка или <code>null</code>
+     */
+    private static Path getProfileTemplate(CommandLineArgs args) throws IOException {
+        if (args.getProfileTemplate() != null)
+            return Path.of(args.getProfileTemplate());
+
+        return LibreOffice.getProfileTemplate();
+    }
+
+    /**
+     * Создаёт снимок профиля LibreOffice.
+     *
+     * @param args аргументы командной строки
+     * @return код возврата программы
+     */
+    private static int createProfile(CommandLineArgs args) {
+        Path target = Path.of(args.getCreateProfile());
+        try {
+            long start = System.nanoTime();
+            OfficeProfile.create(LibreOffice.find(), target, LibreOffice.getConnectTimeout());
+            System.out.printf("Profile created in %s (%d ms)%n", target,
+                    (System.nanoTime() - start) / 1000000);
+            return 0;
+        }
+        catch (LibreOfficeException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return -1;
+        }
+        catch (Exception e) {
+            e.printStackTrace(System.err);
+            return -1;
+        }
+    }
+
+    /**
+     * Выполняет пакетную обработку заданий из файла, указанного в аргументах,
+     * с использованием пула рабочих процессов LibreOffice.
+     *
+     * @param args аргументы командной строки
+     * @return код возврата программы
+     */
+    private static int runBatch(CommandLineArgs args) {
+        List<BatchJob> jobs;
+        try {
+            jobs = BatchManifest.read(args.getBatchManifest());
+        }
+        catch (FileNotFoundException | NoSuchFileException e) {
+            System.err.printf("%s: file not found%n", e.getMessage());
+            return -1;
+        }
+        catch (IOException e) {
+            System.err.printf("%s%n", e);
+            return -1;
+        }
+        catch (IllegalArgumentException e) {
+            System.err.printf("%s: %s%n", args.getBatchManifest(), e.getMessage());
+            return -1;
+        }
+
+        try (MetricsWriter metrics = openMetrics(args);
+             ProgressEventWriter events = openProgressEvents(args);
+             OfficeWorkerPool pool = new OfficeWorkerPool(LibreOffice.find(), args.getWorkerCount())) {
+            pool.setJobDeadline(args.getJobTimeout() * 1000);
+            pool.setConnectTimeout(LibreOffice.getConnectTimeout());
+            pool.setProfileTemplate(getProfileTemplate(args));
+            pool.start();
+
+            BatchRunner runner = new BatchRunner(pool, args);
+            runner.setMetricsWriter(metrics);
+            runner.setProgressListener(events);
+            boolean success = runner.run(jobs);
+            runner.getStatistics().print(System.out);
+            System.out.printf("LibreOffice startup: %s%n", StartupStatistics.summary());
+
+            return success ? 0 : 1;
+        }
+        catch (LibreOfficeException e) {
+            System.err.println(e.getMessage());
+            return -1;
+        }
+        catch (Exception e) {
+            e.printStackTrace(System.err);
+            return -1;
+        }
+    }
+
+    /**
+     * Собирает документ и пересобирает его при изменении исходных файлов
+     * на одном и том же процессе LibreOffice. Работает до завершения
+     * программы (например, по Ctrl+C).
+     *
+     * @param args аргументы командной строки
+     * @return код возврата программы
+     */
+    private static int runWatch(CommandLineArgs args) {
+        // Итоговый файл создан предыдущей сборкой
+        args.setShouldOverwrite(true);
+
+        CountDownLatch closed = new CountDownLatch(1);
+        try (MetricsWriter metrics = openMetrics(args);
+             ProgressEventWriter events = openProgressEvents(args);
+             OfficeWorkerPool pool = new OfficeWorkerPool(LibreOffice.find(), 1)) {
+            pool.setJobDeadline(args.getJobTimeout() * 1000);
+            pool.setConnectTimeout(LibreOffice.getConnectTimeout());
+            pool.setProfileTemplate(getProfileTemplate(args));
+            pool.start();
+            System.out.printf("LibreOffice startup: %s%n", StartupStatistics.summary());
+
+            JobExecutor executor = new JobExecutor(args);
+            executor.setMetricsWriter(metrics);
+            executor.setProgressListener(events);
+
+            try (DocumentWatcher watcher = new DocumentWatcher(pool, executor, args)) {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        watcher.close();
+                        closed.await();
+                    }
+                    catch (IOException | InterruptedException ignored) {}
+                }));
+
+                watcher.run();
+            }
+            return 0;
+        }
+        catch (LibreOfficeException e) {
+            System.err.println(e.getMessage());
+            return -1;
+        }
+        catch (Exception e) {
+            e.printStackTrace(System.err);
+            return -1;
+        }
+        finally {
+            closed.countDown();
+        }
+    }
+
+    /**
+     * Запускает резидентный сервер, принимающий задания по HTTP. Сервер
+     * работает до завершения программы (например, по Ctrl+C).
+     *
+     * @param args аргументы командной строки
+     * @return код возврата программы
+     */
+    private static int runServer(CommandLineArgs args) {
+        CountDownLatch closed = new CountDownLatch(1);
+        try (MetricsWriter metrics = openMetrics(args);
+             ProgressEventWriter events = openProgressEvents(args);
+             OfficeWorkerPool pool = new OfficeWorkerPool(LibreOffice.find(), args.getWorkerCount())) {
+            pool.setJobDeadline(args.getJobTimeout() * 1000);
+            pool.setConnectTimeout(LibreOffice.getConnectTimeout());
+            pool.setProfileTemplate(getProfileTemplate(args));
+            pool.start();
+            System.out.printf("LibreOffice startup: %s%n", StartupStatistics.summary());
+
+            TemplaterServer server = new TemplaterServer(pool, args, args.getQueueSize());
+            server.setMetricsWriter(metrics);
+            server.setProgressListener(events);
+            server.start(args.getServerPort());
+            System.out.printf("Listening on 127.0.0.1:%d%n", args.getServerPort());
+
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop();
+                try {
+                    closed.await();
+                }
+                catch (InterruptedException ignored) {}
+            }));
+
+            server.await();
+            server.getStatistics().setRestarts(pool.getRestartCount());
+            server.getStatistics().print(System.out);
+            return 0;
+        }
+        catch (LibreOfficeException e) {
+            System.err.println(e.getMessage());
+            return -1;
+        }
+        catch (Exception e) {
+            e.printStackTrace(System.err);
+            return -1;
+        }
+        finally {
+            closed.countDown();
+        }
+    }
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.cli;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import ooo.connector.StartupStatistics;
+import ru.danilakondr.templater.metrics.MetricsWriter;
+import ru.danilakondr.templater.progress.ProgressListener;
+import ru.danilakondr.templater.pool.OfficeWorkerPool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Резидентный сервер обработки документов. Сервер держит запущенными JVM и
+ * пул процессов LibreOffice и принимает задания по HTTP только с локального
+ * адреса (<code>127.0.0.1</code>).
+ * <p>
+ * Запросы:
+ * <ul>
+ *     <li><code>POST /jobs</code> &mdash; тело запроса содержит одно
+ *     задание в виде JSON-объекта (те же поля, что и в файле заданий
+ *     пакетного режима). В ответ построчно передаются сообщения о процессе
+ *     обработки, последняя строка &mdash; <code>status: OK</code> или
+ *     <code>status: FAILED &lt;сообщение&gt;</code>;</li>
+ *     <li><code>GET /status</code> &mdash; состояние сервера.</li>
+ * </ul>
+ * Одновременно выполняется столько заданий, сколько рабочих процессов в
+ * пуле; ещё не более <code>queueSize</code> заданий ожидают в очереди.
+ * Если очередь заполнена, сервер отвечает кодом 503.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class TemplaterServer {
+    private final OfficeWorkerPool pool;
+    private final JobExecutor executor;
+    private final BatchStatistics statistics;
+    private final Semaphore admission;
+    private final int capacity;
+    private final Object stopLock = new Object();
+    private HttpServer server;
+    private ExecutorService threads;
+
+    /**
+     * Создаёт сервер.
+     *
+     * @param pool запущенный пул рабочих процессов LibreOffice
+     * @param defaults аргументы командной строки, которые применяются ко
+     *                 всем заданиям (макросы, встраивание шрифтов и т. д.)
+     * @param queueSize число заданий, которые могут ожидать свободный
+     *                  рабочий процесс
+     */
+    public TemplaterServer(OfficeWorkerPool pool, CommandLineArgs defaults, int queueSize) {
+        this.pool = pool;
+        this.executor = new JobExecutor(defaults);
+        this.statistics = new BatchStatistics();
+        this.capacity = pool.size() + queueSize;
+        this.admission = new Semaphore(capacity);
+    }
+
+    /**
+     * Запускает сервер на указанном порту локального адреса.
+     *
+     * @param port номер порта
+     * @throws IOException ошибка при открытии порта
+     */
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        threads = Executors.newCachedThreadPool();
+        server.setExecutor(threads);
+        server.createContext("/jobs", this::handleJob);
+        server.createContext("/status", this::handleStatus);
+
+        statistics.start();
+        server.start();
+    }
+
+    /**
+     * Ожидает остановки сервера.
+     */
+    public void await() throws InterruptedException {
+        synchronized (stopLock) {
+            while (server != null)
+                stopLock.wait();
+        }
+    }
+
+    /**
+     * Останавливает сервер. Выполняющиеся задания не прерываются.
+     */
+    public void stop() {
+        synchronized (stopLock) {
+            if (server == null)
+                return;
+
+            server.stop(0);
+            threads.shutdown();
+            statistics.finish();
+            server = null;
+            stopLock.notifyAll();
+        }
+    }
+
+    public BatchStatistics getStatistics() {
+        return statistics;
+    }
+
+    public void setMetricsWriter(MetricsWriter metricsWriter) {
+        executor.setMetricsWriter(metricsWriter);
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        executor.setProgressListener(progressListener);
+    }
+
+    private void handleJob(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                sendText(exchange, 405, "Method not allowed\n");
+                return;
+            }
+
+            BatchJob job;
+            try {
+                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                job = BatchManifest.parseJob(body);
+            }
+            catch (IllegalArgumentException e) {
+                sendText(exchange, 400, e.getMessage() + "\n");
+                return;
+            }
+
+            if (!admission.tryAcquire()) {
+                sendText(exchange, 503, "Queue is full\n");
+                return;
+            }
+
+            try {
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(200, 0);
+
+                PrintStream out = new PrintStream(exchange.getResponseBody(), true, StandardCharsets.UTF_8);
+                runJob(job, out);
+                out.flush();
+            }
+            finally {
+                admission.release();
+            }
+        }
+    }
+
+    private void runJob(BatchJob job, PrintStream out) {
+        long start = System.nanoTime();
+        String error;
+        try {
+            error = pool.execute(worker -> executor.execute(job, worker, out));
+        }
+        catch (Exception e) {
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        statistics.addJob(elapsed, error == null);
+        if (error == null) {
+            out.printf("status: OK (%.1f s)%n", elapsed / 1e9);
+            System.out.printf("OK %s (%.1f s)%n", job, elapsed / 1e9);
+        }
+        else {
+            out.printf("status: FAILED %s%n", error);
+            System.out.printf("FAILED %s: %s%n", job, error);
+        }
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String status = String.format(
+                    "workers: %d%nbusy: %d%nqueued: %d%njobs: %d%nfailed: %d%nrestarts: %d%nstartup: %s%n",
+                    pool.size(),
+                    Math.min(pool.size(), capacity - admission.availablePermits()),
+                    Math.max(0, capacity - admission.availablePermits() - pool.size()),
+                    statistics.getSucceeded() + statistics.getFailed(),
+                    statistics.getFailed(),
+                    pool.getRestartCount(),
+                    StartupStatistics.summary());
+            sendText(exchange, 200, status);
+        }
+    }
+
+    private static void sendText(HttpExchange exchange, int code, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
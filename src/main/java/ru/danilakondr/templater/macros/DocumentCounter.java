@@ -23,7 +23,6 @@ import com.sun.star.beans.XPropertySet;
 import com.sun.star.container.XEnumeration;
 import com.sun.star.container.XEnumerationAccess;
 import com.sun.star.container.XNameAccess;
-import com.sun.star.frame.XController;
 import com.sun.star.text.XTextContent;
 import com.sun.star.text.XTextDocument;
 import com.sun.star.text.XTextSectionsSupplier;
@@ -31,6 +30,9 @@ import com.sun.star.uno.AnyConverter;
 import com.sun.star.uno.Exception;
 import com.sun.star.uno.UnoRuntime;
 import org.apache.commons.text.lookup.StringLookup;
+import ru.danilakondr.templater.metrics.UnoCalls;
+import ru.danilakondr.templater.processing.DocumentStatistics;
+import ru.danilakondr.templater.processing.TextDocument;
 
 
 public class DocumentCounter implements StringLookup {
@@ -38,29 +40,33 @@ public class DocumentCounter implements StringLookup {
 
     private final int n_pages;
 
-    private final int n_figures;
-
-    private final int n_tables;
+    private final DocumentStatistics statistics;
 
     public DocumentCounter(XTextDocument xDoc) {
+        this(xDoc, new DocumentStatistics());
+    }
+
+    /**
+     * Создаёт счётчик, который берёт значения из статистики, собранной при
+     * обработке документа. Счётчики рисунков и таблиц, которых нет в
+     * статистике, вычисляются отдельным проходом по документу.
+     *
+     * @param xDoc документ
+     * @param statistics статистика документа
+     * @since 0.7.0
+     */
+    public DocumentCounter(XTextDocument xDoc, DocumentStatistics statistics) {
         this.xDoc = xDoc;
-        this.n_figures = getFigureCount();
+        this.statistics = statistics;
+        if (statistics.get(DocumentStatistics.FIGURES) == null)
+            statistics.set(DocumentStatistics.FIGURES, getFigureCount());
+        if (statistics.get(DocumentStatistics.TABLES) == null)
+            statistics.set(DocumentStatistics.TABLES, getTableCount());
         this.n_pages = getPageCount();
-        this.n_tables = getTableCount();
     }
 
     private int getPageCount() {
-        try {
-            XController xController = xDoc.getCurrentController();
-            XPropertySet xCtrlProp = UnoRuntime
-                    .queryInterface(XPropertySet.class, xController);
-
-            return AnyConverter
-                    .toInt(xCtrlProp.getPropertyValue("PageCount"));
-        }
-        catch (Exception e) {
-            return 0;
-        }
+        return new TextDocument(xDoc).getPageCount();
     }
 
     private int getFigureCount() {
@@ -73,8 +79,7 @@ public class DocumentCounter implements StringLookup {
             while (xEnum.hasMoreElements()) {
                 XTextContent xParagraph = UnoRuntime
                         .queryInterface(XTextContent.class, xEnum.nextElement());
-                XPropertySet xParProp = UnoRuntime
-                        .queryInterface(XPropertySet.class, xParagraph);
+                XPropertySet xParProp = UnoCalls.propertySet(xParagraph);
 
                 String styleName = AnyConverter
                         .toString(xParProp.getPropertyValue("ParaStyleName"));
@@ -106,11 +111,8 @@ public class DocumentCounter implements StringLookup {
     public String lookup(String s) {
         if (s.compareTo("N_PAGES") == 0)
             return String.valueOf(n_pages);
-        if (s.compareTo("N_FIGURES") == 0)
-            return String.valueOf(n_figures);
-        if (s.compareTo("N_TABLES") == 0)
-            return String.valueOf(n_tables);
 
-        return null;
+        Integer count = statistics.get(s);
+        return count != null ? String.valueOf(count) : null;
     }
 }
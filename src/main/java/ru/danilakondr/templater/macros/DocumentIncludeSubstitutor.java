@@ -28,29 +28,88 @@ import com.sun.star.uno.UnoRuntime;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 /**
  * Обрабатывает макросы вида %INCLUDE(...)%. Вставляет содержимое заданных
  * файлов на нужные места. Обработка %INCLUDE(...)% может происходить несколько
  * раз.
+ * <p>
+ * Если задан кэш включаемых документов, файл, который включается повторно,
+ * вставляется из кэша ({@link IncludeCache}); первое включение и
+ * некэшируемые файлы вставляются обычным образом.
+ * <p>
+ * Относительные пути указываются относительно заданной директории, а если
+ * она не задана, &mdash; относительно текущей директории.
  *
  * @author Данила А. Кондратенко
  * @since 0.3.0, 0.1.5
  */
 public class DocumentIncludeSubstitutor implements MacroSubstitutor.Substitutor {
     private static final Pattern macroPattern = Pattern.compile("%INCLUDE\\((.*)\\)%");
+    private final IncludeCache cache;
+    private final File baseDirectory;
+    private final Set<File> includedFiles = new LinkedHashSet<>();
+
+    public DocumentIncludeSubstitutor() {
+        this(null);
+    }
+
+    /**
+     * Создаёт обработчик, использующий кэш включаемых документов.
+     *
+     * @param cache кэш или <code>null</code>, если кэш не используется
+     * @since 0.7.0
+     */
+    public DocumentIncludeSubstitutor(IncludeCache cache) {
+        this(cache, null);
+    }
+
+    /**
+     * Создаёт обработчик, использующий кэш включаемых документов и
+     * разрешающий относительные пути относительно заданной директории.
+     *
+     * @param cache кэш или <code>null</code>, если кэш не используется
+     * @param baseDirectory директория или <code>null</code>, если пути
+     *                      указываются относительно текущей директории
+     * @since 0.7.0
+     */
+    public DocumentIncludeSubstitutor(IncludeCache cache, File baseDirectory) {
+        this.cache = cache;
+        this.baseDirectory = baseDirectory;
+    }
+
+    /**
+     * Возвращает файлы, которые были включены в документ.
+     *
+     * @return множество файлов
+     * @since 0.7.0
+     */
+    public Set<File> getIncludedFiles() {
+        return Collections.unmodifiableSet(includedFiles);
+    }
+
     @Override
-    public void substitute(XTextDocument xDoc, XTextRange xRange) {
-        String include = macroPattern.matcher(xRange.getString()).replaceAll("$1");
+    public void substitute(XTextDocument xDoc, XTextRange xRange, String text) {
+        String include = macroPattern.matcher(text).replaceAll("$1");
 
-        File f = new File(include).getAbsoluteFile();
+        File f = new File(include);
+        if (!f.isAbsolute() && baseDirectory != null)
+            f = new File(baseDirectory, include);
+        f = f.getAbsoluteFile();
         if (!f.exists()) {
             throw new RuntimeException(new FileNotFoundException(f.getAbsolutePath()));
         }
+        includedFiles.add(f);
 
         String url = f.toURI().toString();
         try {
+            if (cache != null && cache.insert(xDoc, xRange, f))
+                return;
+
             XTextCursor xCursor = xRange.getText().createTextCursorByRange(xRange);
             xCursor.gotoRange(xRange, true);
 
@@ -63,7 +122,12 @@ public class DocumentIncludeSubstitutor implements MacroSubstitutor.Substitutor
     }
 
     @Override
-    public boolean test(XTextRange xRange) {
-        return macroPattern.matcher(xRange.getString()).matches();
+    public boolean test(String text) {
+        return macroPattern.matcher(text).matches();
+    }
+
+    @Override
+    public boolean insertsContent() {
+        return true;
     }
 }
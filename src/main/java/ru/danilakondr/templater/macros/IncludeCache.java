@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.macros;
+
+import com.sun.star.beans.PropertyValue;
+import com.sun.star.container.XEnumeration;
+import com.sun.star.container.XEnumerationAccess;
+import com.sun.star.datatransfer.XTransferable;
+import com.sun.star.datatransfer.XTransferableSupplier;
+import com.sun.star.frame.XComponentLoader;
+import com.sun.star.frame.XController;
+import com.sun.star.frame.XDesktop;
+import com.sun.star.frame.XModel;
+import com.sun.star.lang.XComponent;
+import com.sun.star.lang.XServiceInfo;
+import com.sun.star.text.XTextCursor;
+import com.sun.star.text.XTextDocument;
+import com.sun.star.text.XTextRange;
+import com.sun.star.uno.UnoRuntime;
+import com.sun.star.util.XCloseable;
+import com.sun.star.view.XSelectionSupplier;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кэш включаемых документов. Первое включение файла выполняется обычным
+ * образом ({@link com.sun.star.document.XDocumentInsertable}), поэтому
+ * файлы, которые включаются один раз, не загружаются лишний раз. При
+ * повторном включении документ загружается в скрытом режиме, его
+ * содержимое копируется в буфер обмена LibreOffice ({@link XTransferable})
+ * и затем вставляется во все следующие места включения.
+ * <p>
+ * Документы, которые начинаются или заканчиваются таблицей, не кэшируются:
+ * такую таблицу нельзя выделить курсором основного текста, и копия была
+ * бы неполной.
+ * <p>
+ * Ключ кэша &mdash; канонический путь к файлу, время его изменения и
+ * размер, поэтому изменённый файл загружается заново. Число одновременно
+ * загруженных документов ограничено; при переполнении закрывается документ,
+ * который дольше всего не использовался.
+ * <p>
+ * Кэш привязан к одному процессу LibreOffice и может использоваться
+ * несколькими документами подряд (например, в пакетном режиме), но не
+ * одновременно.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class IncludeCache implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Наибольшее число запоминаемых файлов, которые уже включались.
+     */
+    private static final int SEEN_CAPACITY = 256;
+
+    private final XDesktop xDesktop;
+    private final LinkedHashMap<Key, Entry> entries;
+    private final LinkedHashMap<Key, Boolean> seen = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+            return size() > SEEN_CAPACITY;
+        }
+    };
+    private int hits = 0;
+    private int misses = 0;
+
+    private record Key(String path, long modified, long size) {}
+
+    private static class Entry {
+        /**
+         * Документ, который вставляется обычным образом.
+         */
+        static final Entry DIRECT = new Entry(null, null);
+
+        final XComponent xComponent;
+        final XTransferable xTransferable;
+
+        Entry(XComponent xComponent, XTransferable xTransferable) {
+            this.xComponent = xComponent;
+            this.xTransferable = xTransferable;
+        }
+    }
+
+    /**
+     * Создаёт кэш.
+     *
+     * @param xDesktop рабочий стол LibreOffice, в котором загружаются
+     *                 документы
+     * @param capacity наибольшее число загруженных документов
+     */
+    public IncludeCache(XDesktop xDesktop, int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Cache capacity must be positive");
+
+        this.xDesktop = xDesktop;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() <= capacity)
+                    return false;
+
+                if (eldest.getValue().xComponent != null)
+                    closeQuietly(eldest.getValue().xComponent);
+                return true;
+            }
+        };
+    }
+
+    public IncludeCache(XDesktop xDesktop) {
+        this(xDesktop, DEFAULT_CAPACITY);
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Вставляет содержимое файла на место заданного фрагмента текста, если
+     * файл уже включался ранее и его можно вставить из кэша.
+     *
+     * @param xDoc документ, в который вставляется файл
+     * @param xRange заменяемый фрагмент
+     * @param file вставляемый файл
+     * @return <code>true</code>, если содержимое вставлено из кэша;
+     * <code>false</code>, если файл нужно вставить обычным образом
+     * (первое включение, документ не кэшируется или не загрузился)
+     * @throws Exception ошибка при вставке содержимого из кэша
+     */
+    public synchronized boolean insert(XTextDocument xDoc, XTextRange xRange, File file) throws Exception {
+        Key key = keyOf(file);
+
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            if (seen.put(key, Boolean.TRUE) == null)
+                return false;
+
+            misses++;
+            entry = load(file);
+            entries.put(key, entry);
+        }
+        if (entry.xTransferable == null)
+            return false;
+
+        XController xController = UnoRuntime
+                .queryInterface(XModel.class, xDoc)
+                .getCurrentController();
+        XSelectionSupplier xSelection = UnoRuntime
+                .queryInterface(XSelectionSupplier.class, xController);
+        XTransferableSupplier xTransfer = UnoRuntime
+                .queryInterface(XTransferableSupplier.class, xController);
+
+        try {
+            xSelection.select(xRange);
+            xTransfer.insertTransferable(entry.xTransferable);
+        }
+        catch (Exception e) {
+            // Документ, с которым не удалось вставить, больше не используется
+            entries.remove(key);
+            closeQuietly(entry.xComponent);
+            throw e;
+        }
+
+        hits++;
+        return true;
+    }
+
+    private static Key keyOf(File file) throws IOException {
+        File canonical = file.getCanonicalFile();
+        return new Key(canonical.getPath(), canonical.lastModified(), canonical.length());
+    }
+
+    /**
+     * Загружает документ и копирует всё его содержимое. Если документ не
+     * удалось загрузить или его нельзя скопировать целиком, он вставляется
+     * обычным образом.
+     */
+    private Entry load(File file) {
+        XComponentLoader xLoader = UnoRuntime
+                .queryInterface(XComponentLoader.class, xDesktop);
+
+        PropertyValue[] props = new PropertyValue[1];
+        props[0] = new PropertyValue();
+        props[0].Name = "Hidden";
+        props[0].Value = Boolean.TRUE;
+
+        XComponent xComp = null;
+        try {
+            xComp = xLoader.loadComponentFromURL(
+                    file.toURI().toString(), "_blank", 0, props);
+
+            XTextDocument xIncluded = UnoRuntime.queryInterface(XTextDocument.class, xComp);
+            if (xIncluded == null || hasBoundaryTable(xIncluded)) {
+                closeQuietly(xComp);
+                return Entry.DIRECT;
+            }
+
+            XController xController = UnoRuntime
+                    .queryInterface(XModel.class, xIncluded)
+                    .getCurrentController();
+
+            XTextCursor xCursor = xIncluded.getText().createTextCursor();
+            xCursor.gotoStart(false);
+            xCursor.gotoEnd(true);
+            UnoRuntime.queryInterface(XSelectionSupplier.class, xController)
+                    .select(xCursor);
+
+            XTransferable xTransferable = UnoRuntime
+                    .queryInterface(XTransferableSupplier.class, xController)
+                    .getTransferable();
+            return new Entry(xComp, xTransferable);
+        }
+        catch (com.sun.star.uno.Exception | com.sun.star.uno.RuntimeException e) {
+            if (xComp != null)
+                closeQuietly(xComp);
+            System.err.printf("%s: cannot cache included document (%s), inserting it directly%n",
+                    file, e.getMessage());
+            return Entry.DIRECT;
+        }
+    }
+
+    /**
+     * Проверяет, начинается или заканчивается ли документ таблицей.
+     */
+    private static boolean hasBoundaryTable(XTextDocument xDoc) throws com.sun.star.uno.Exception {
+        XEnumeration xParagraphs = UnoRuntime
+                .queryInterface(XEnumerationAccess.class, xDoc.getText())
+                .createEnumeration();
+
+        Object first = null;
+        Object last = null;
+        while (xParagraphs.hasMoreElements()) {
+            last = xParagraphs.nextElement();
+            if (first == null)
+                first = last;
+        }
+
+        return isTable(first) || isTable(last);
+    }
+
+    private static boolean isTable(Object element) {
+        XServiceInfo xInfo = UnoRuntime.queryInterface(XServiceInfo.class, element);
+        return xInfo != null && xInfo.supportsService("com.sun.star.text.TextTable");
+    }
+
+    private static void closeQuietly(XComponent xComp) {
+        try {
+            XCloseable xCloseable = UnoRuntime.queryInterface(XCloseable.class, xComp);
+            if (xCloseable == null)
+                xComp.dispose();
+            else
+                xCloseable.close(true);
+        }
+        catch (Exception ignored) {}
+    }
+
+    /**
+     * Закрывает все загруженные документы.
+     */
+    @Override
+    public synchronized void close() {
+        for (Entry e : entries.values()) {
+            if (e.xComponent != null)
+                closeQuietly(e.xComponent);
+        }
+        entries.clear();
+        seen.clear();
+    }
+}
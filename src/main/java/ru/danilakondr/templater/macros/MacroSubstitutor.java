@@ -26,18 +26,38 @@ import com.sun.star.uno.UnoRuntime;
 import com.sun.star.util.XSearchDescriptor;
 import com.sun.star.util.XSearchable;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Обработчик макросов в документе.
+ * <p>
+ * Метод {@link #substituteAll(List)} обрабатывает макросы сразу несколькими
+ * обработчиками: документ сканируется один раз, каждый найденный макрос
+ * передаётся первому обработчику, который его принимает, а повторное
+ * сканирование нужно только после обработчика, вставляющего содержимое.
  *
  * @author Данила А. Кондратенко
  * @since 0.3.0
  */
 public class MacroSubstitutor {
+    /**
+     * Регулярное выражение, по которому ищутся макросы.
+     */
+    private static final String MACRO_REGEX = "%(.*?)%";
+
     /**
      * Документ
      */
     private final XTextDocument xDoc;
 
+    /**
+     * Число поисков макросов по всему документу.
+     */
+    private int scanCount = 0;
+
     public MacroSubstitutor(XTextDocument xDoc) {
         this.xDoc = xDoc;
     }
@@ -47,31 +67,172 @@ public class MacroSubstitutor {
      */
     @FunctionalInterface
     public interface Substitutor {
-        void substitute(XTextDocument xDoc, XTextRange xRange);
+        /**
+         * Обрабатывает макрос.
+         *
+         * @param xDoc документ
+         * @param xRange место макроса в документе
+         * @param text текст макроса (уже полученный из <code>xRange</code>)
+         */
+        void substitute(XTextDocument xDoc, XTextRange xRange, String text);
 
-        default boolean test(XTextRange xRange) {
-            return xRange.getString().matches("%(.*?)%");
+        /**
+         * Проверяет, обрабатывает ли данный обработчик макрос.
+         *
+         * @param text текст макроса
+         * @return <code>true</code>, если макрос обрабатывается
+         */
+        default boolean test(String text) {
+            return text.matches(MACRO_REGEX);
+        }
+
+        /**
+         * Сообщает, может ли обработчик вставлять в документ новый текст, в
+         * котором могут быть другие макросы. После такого обработчика
+         * документ сканируется заново.
+         *
+         * @since 0.7.0
+         */
+        default boolean insertsContent() {
+            return false;
         }
     }
 
     /**
-     * Ищет и обрабатывает макросы в документе.
+     * Обработчик, который обрабатывает все свои макросы сразу, сгруппировав
+     * их по тексту. Используется, когда замена одинаковых макросов одной
+     * операцией дешевле, чем замена каждого по отдельности.
      *
-     * @param proc обработчик макросов
+     * @since 0.7.0
      */
-    public void substitute(Substitutor proc) throws Exception {
+    public interface BatchSubstitutor extends Substitutor {
+        /**
+         * Обрабатывает все найденные макросы.
+         *
+         * @param xDoc документ
+         * @param macros места макросов в документе, сгруппированные по
+         *               тексту макроса в порядке первого появления
+         */
+        void substituteAll(XTextDocument xDoc, Map<String, List<XTextRange>> macros);
+    }
+
+    /**
+     * Найденный макрос. Текст макроса запрашивается у LibreOffice один раз.
+     */
+    private static class Macro {
+        final XTextRange xRange;
+        final String text;
+        int phase = -1;
+
+        Macro(XTextRange xRange, String text) {
+            this.xRange = xRange;
+            this.text = text;
+        }
+    }
+
+    public int getScanCount() {
+        return scanCount;
+    }
+
+    /**
+     * Ищет все макросы в документе.
+     */
+    private List<Macro> scan() throws Exception {
         XSearchable xS = UnoRuntime.queryInterface(XSearchable.class, xDoc);
         XSearchDescriptor xSD = xS.createSearchDescriptor();
 
-        xSD.setSearchString("%(.*?)%");
+        xSD.setSearchString(MACRO_REGEX);
         xSD.setPropertyValue("SearchRegularExpression", true);
 
         XIndexAccess xAllFound = xS.findAll(xSD);
+        scanCount++;
+
+        List<Macro> found = new ArrayList<>(xAllFound.getCount());
         for (int i = 0; i < xAllFound.getCount(); i++) {
             Object oFound = xAllFound.getByIndex(i);
             XTextRange xFound = UnoRuntime.queryInterface(XTextRange.class, oFound);
-            if (proc.test(xFound)) {
-                proc.substitute(xDoc, xFound);
+            found.add(new Macro(xFound, xFound.getString()));
+        }
+
+        return found;
+    }
+
+    /**
+     * Ищет и обрабатывает макросы в документе.
+     *
+     * @param proc обработчик макросов
+     */
+    public void substitute(Substitutor proc) throws Exception {
+        List<Macro> found = scan();
+        classify(found, List.of(proc), 0);
+        substitutePhase(proc, found, 0);
+    }
+
+    /**
+     * Обрабатывает макросы в документе несколькими обработчиками за один
+     * поиск. Каждый найденный макрос относится к первому по порядку
+     * обработчику, который его принимает; обработчики выполняются в
+     * указанном порядке. Документ сканируется заново, только если обработчик,
+     * вставляющий содержимое ({@link Substitutor#insertsContent()}),
+     * действительно что-то вставил; каждый обработчик выполняется не более
+     * одного раза.
+     *
+     * @param phases обработчики макросов в порядке выполнения
+     * @since 0.7.0
+     */
+    public void substituteAll(List<Substitutor> phases) throws Exception {
+        List<Macro> found = scan();
+        classify(found, phases, 0);
+
+        for (int phase = 0; phase < phases.size(); phase++) {
+            Substitutor proc = phases.get(phase);
+
+            int done = substitutePhase(proc, found, phase);
+            if (done > 0 && proc.insertsContent() && phase + 1 < phases.size()) {
+                found = scan();
+                classify(found, phases, phase + 1);
+            }
+        }
+    }
+
+    /**
+     * Обрабатывает макросы, отнесённые к заданному обработчику.
+     *
+     * @return число обработанных макросов
+     */
+    private int substitutePhase(Substitutor proc, List<Macro> found, int phase) {
+        if (proc instanceof BatchSubstitutor batch) {
+            Map<String, List<XTextRange>> grouped = new LinkedHashMap<>();
+            int done = 0;
+            for (Macro m : found) {
+                if (m.phase == phase) {
+                    grouped.computeIfAbsent(m.text, k -> new ArrayList<>()).add(m.xRange);
+                    done++;
+                }
+            }
+
+            if (done > 0)
+                batch.substituteAll(xDoc, grouped);
+            return done;
+        }
+
+        int done = 0;
+        for (Macro m : found) {
+            if (m.phase == phase) {
+                proc.substitute(xDoc, m.xRange, m.text);
+                done++;
+            }
+        }
+        return done;
+    }
+
+    private static void classify(List<Macro> found, List<Substitutor> phases, int from) {
+        for (Macro m : found) {
+            for (int phase = from; phase < phases.size(); phase++) {
+                if (phases.get(phase).test(m.text)) {
+                    m.phase = phase;
+                    break;
+                }
             }
         }
     }
@@ -39,7 +39,7 @@ public class MainTextIncludeSubstitutor implements MacroSubstitutor.Substitutor
         this.mainTextURL = mainTextURL;
     }
     @Override
-    public void substitute(XTextDocument xDoc, XTextRange xRange) {
+    public void substitute(XTextDocument xDoc, XTextRange xRange, String text) {
         try {
             XTextCursor xCursor = xDoc.getText().createTextCursorByRange(xRange);
             xCursor.gotoRange(xRange, true);
@@ -53,7 +53,12 @@ public class MainTextIncludeSubstitutor implements MacroSubstitutor.Substitutor
     }
 
     @Override
-    public boolean test(XTextRange xRange) {
-        return xRange.getString().compareTo("%MAIN_TEXT%") == 0;
+    public boolean test(String text) {
+        return text.compareTo("%MAIN_TEXT%") == 0;
+    }
+
+    @Override
+    public boolean insertsContent() {
+        return true;
     }
 }
@@ -17,34 +17,133 @@
  * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
  */
 
+
 package ru.danilakondr.templater.macros;
 
 import com.sun.star.text.XTextCursor;
 import com.sun.star.text.XTextDocument;
 import com.sun.star.text.XTextRange;
+import com.sun.star.uno.UnoRuntime;
+import com.sun.star.util.XReplaceDescriptor;
+import com.sun.star.util.XReplaceable;
 import org.apache.commons.text.StringSubstitutor;
 import org.apache.commons.text.lookup.StringLookup;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Обработчик подстановки строк. Осуществляет подстановку на месте макросов
  * вида %...%.
+ * <p>
+ * Значение каждого макроса вычисляется один раз. Все вхождения одного
+ * макроса заменяются одной операцией поиска и замены
+ * ({@link XReplaceable#replaceAll}), а не каждое по отдельности. Если
+ * поиск находит не столько вхождений, сколько было найдено макросов
+ * (например, текст <code>%A%B%</code> содержит макрос <code>%A%</code>, но
+ * не <code>%B%</code>), или значение нельзя вставить заменой, макросы
+ * заменяются по одному.
  *
  * @author Данила А. Кондратенко
  * @since 0.3.0
  */
-public class StringMacroSubstitutor implements MacroSubstitutor.Substitutor {
-    private final StringLookup lookup;
+public class StringMacroSubstitutor implements MacroSubstitutor.BatchSubstitutor {
+    private final StringSubstitutor substitutor;
+    private final Map<String, String> values = new HashMap<>();
+    private int batchReplaced = 0;
 
     public StringMacroSubstitutor(StringLookup lookup) {
-        this.lookup = lookup;
+        this.substitutor = new StringSubstitutor(lookup, "%", "%", '%');
+    }
+
+    /**
+     * Возвращает число макросов, заменённых поиском и заменой.
+     *
+     * @return число макросов
+     * @since 0.7.0
+     */
+    public int getBatchReplaced() {
+        return batchReplaced;
+    }
+
+    private String resolve(String text) {
+        return values.computeIfAbsent(text, substitutor::replace);
     }
-    @Override
-    public void substitute(XTextDocument xDoc, XTextRange xRange) {
-        StringSubstitutor substitutor = new StringSubstitutor(lookup, "%", "%", '%');
 
-        String value = substitutor.replace(xRange.getString());
+    @Override
+    public void substitute(XTextDocument xDoc, XTextRange xRange, String text) {
+        String value = resolve(text);
         XTextCursor xCursor = xDoc.getText().createTextCursorByRange(xRange);
         xCursor.gotoRange(xRange, true);
         xDoc.getText().insertString(xCursor, value, true);
     }
+
+    @Override
+    public void substituteAll(XTextDocument xDoc, Map<String, List<XTextRange>> macros) {
+        // Значение с символом % может само совпасть с другим макросом, поэтому
+        // порядок замены важен
+        boolean batch = macros.keySet().stream().noneMatch(text -> resolve(text).indexOf('%') >= 0);
+
+        XReplaceable xReplaceable = UnoRuntime.queryInterface(XReplaceable.class, xDoc);
+        for (Map.Entry<String, List<XTextRange>> e : macros.entrySet()) {
+            String text = e.getKey();
+            List<XTextRange> ranges = e.getValue();
+
+            if (batch && isReplaceable(resolve(text)) && replaceAll(xReplaceable, text, ranges.size())) {
+                batchReplaced += ranges.size();
+                continue;
+            }
+
+            for (XTextRange xRange : ranges)
+                substitute(xDoc, xRange, text);
+        }
+    }
+
+    /**
+     * Заменяет все вхождения макроса, если их ровно столько, сколько
+     * ожидается.
+     *
+     * @return <code>true</code>, если замена выполнена
+     */
+    private boolean replaceAll(XReplaceable xReplaceable, String text, int expected) {
+        try {
+            XReplaceDescriptor xRD = xReplaceable.createReplaceDescriptor();
+            xRD.setSearchString(text);
+            xRD.setReplaceString(resolve(text));
+            xRD.setPropertyValue("SearchCaseSensitive", true);
+            xRD.setPropertyValue("SearchRegularExpression", false);
+
+            if (xReplaceable.findAll(xRD).getCount() != expected)
+                return false;
+
+            xReplaceable.replaceAll(xRD);
+            return true;
+        }
+        catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Управляющие символы (например, перевод строки) вставляются
+     * {@link com.sun.star.text.XSimpleText#insertString} иначе, чем
+     * заменой.
+     */
+    private static boolean isReplaceable(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) < ' ')
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Принимает только те макросы, которые можно разрешить. Остальные
+     * макросы (например, <code>%TOC%</code>) остаются другим обработчикам.
+     */
+    @Override
+    public boolean test(String text) {
+        return !resolve(text).equals(text);
+    }
 }
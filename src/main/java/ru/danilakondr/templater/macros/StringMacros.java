@@ -21,8 +21,6 @@ package ru.danilakondr.templater.macros;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 import org.apache.commons.text.lookup.StringLookup;
@@ -36,9 +34,11 @@ import org.apache.commons.text.lookup.StringLookup;
  */
 public class StringMacros implements StringLookup {
     private final Properties props;
+    private final TimeMacros timeMacros;
 
     public StringMacros() {
         this.props = new Properties();
+        this.timeMacros = new TimeMacros();
     }
 
     /**
@@ -80,26 +80,38 @@ public class StringMacros implements StringLookup {
         this.props.putAll(props);
     }
 
-    @Override
-    public String lookup(String s) {
-        Calendar cal = Calendar.getInstance();
-        Date date = cal.getTime();
+    /**
+     * Возвращает все заданные макросы, упорядоченные по имени.
+     *
+     * @return словарь макросов
+     * @since 0.7.0
+     */
+    public SortedMap<String, String> getDefinitions() {
+        SortedMap<String, String> result = new TreeMap<>();
+        for (String key : props.stringPropertyNames())
+            result.put(key, props.getProperty(key));
+        return result;
+    }
 
-        if (s.compareTo("YEAR") == 0)
-            return String.format("%04d", cal.get(Calendar.YEAR));
-        if (s.compareTo("DATE") == 0)
-            return SimpleDateFormat.getDateInstance(DateFormat.SHORT)
-                    .format(date);
-        if (s.compareTo("TIME") == 0)
-            return SimpleDateFormat.getTimeInstance(DateFormat.SHORT)
-                    .format(date);
-        if (s.compareTo("DATETIME") == 0)
-            return SimpleDateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT)
-                    .format(date);
+    /**
+     * Возвращает значения макросов, зависящих от времени (<code>YEAR</code>,
+     * <code>DATE</code>, <code>TIME</code>, <code>DATETIME</code>,
+     * <code>DATETIME(...)</code>), которые были подставлены этим объектом.
+     * Время запоминается при создании объекта.
+     *
+     * @return словарь значений
+     * @see TimeMacros
+     * @since 0.7.0
+     */
+    public Map<String, String> getTimeValues() {
+        return timeMacros.getValues();
+    }
 
-        if (s.matches("DATETIME\\((.*?)\\)"))
-            return new SimpleDateFormat(s.replaceAll("DATETIME\\((.*?)\\)", "$1"))
-                    .format(date);
+    @Override
+    public String lookup(String s) {
+        String time = timeMacros.lookup(s);
+        if (time != null)
+            return time;
 
         return props.getProperty(s);
     }
@@ -24,14 +24,35 @@ import com.sun.star.lang.XMultiServiceFactory;
 import com.sun.star.text.*;
 import com.sun.star.uno.Exception;
 import com.sun.star.uno.UnoRuntime;
+import ru.danilakondr.templater.metrics.UnoCalls;
+import ru.danilakondr.templater.processing.DeferredUpdates;
 
 /**
  * Обработчик, вставляющий оглавление в документ на месте <code>%TOC%</code>.
+ * Если задан объект отложенных действий, оглавление не обновляется сразу
+ * после вставки, а только запрашивает обновление указателей.
  *
  * @author Данила А. Кондратенко
  * @since 0.3.0
  */
 public class TableOfContentsInserter implements MacroSubstitutor.Substitutor {
+    private final DeferredUpdates updates;
+
+    public TableOfContentsInserter() {
+        this(null);
+    }
+
+    /**
+     * Создаёт обработчик, который откладывает обновление оглавления.
+     *
+     * @param updates отложенные действия или <code>null</code>, если
+     *                оглавление нужно обновить сразу
+     * @since 0.7.0
+     */
+    public TableOfContentsInserter(DeferredUpdates updates) {
+        this.updates = updates;
+    }
+
     /**
      * Создаёт объект оглавления.
      * @return объект оглавления (сервис <code>com.sun.star.text.ContentIndex</code>)
@@ -53,8 +74,7 @@ public class TableOfContentsInserter implements MacroSubstitutor.Substitutor {
 
         XDocumentIndex xIndex = UnoRuntime
                 .queryInterface(XDocumentIndex.class, oIndex);
-        XPropertySet xIndexProp = UnoRuntime
-                .queryInterface(XPropertySet.class, xIndex);
+        XPropertySet xIndexProp = UnoCalls.propertySet(xIndex);
 
         xText.insertTextContent(cursor, xIndex, true);
 
@@ -62,11 +82,14 @@ public class TableOfContentsInserter implements MacroSubstitutor.Substitutor {
         xIndexProp.setPropertyValue("CreateFromOutline", true);
         xIndexProp.setPropertyValue("Title", "Оглавление");
 
-        xIndex.update();
+        if (updates != null)
+            updates.requestIndexUpdate();
+        else
+            xIndex.update();
     }
 
     @Override
-    public void substitute(XTextDocument xDoc, XTextRange xRange) {
+    public void substitute(XTextDocument xDoc, XTextRange xRange, String text) {
         XText xText = xRange.getText();
         XTextCursor xCursor = xText.createTextCursorByRange(xRange);
 
@@ -80,7 +103,7 @@ public class TableOfContentsInserter implements MacroSubstitutor.Substitutor {
     }
 
     @Override
-    public boolean test(XTextRange xRange) {
-        return xRange.getString().contains("%TOC%");
+    public boolean test(String text) {
+        return text.contains("%TOC%");
     }
 }
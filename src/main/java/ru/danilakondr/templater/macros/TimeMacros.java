@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ru.danilakondr.templater.macros;
+
+import org.apache.commons.text.lookup.StringLookup;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+/**
+ * Макросы, зависящие от времени: <code>YEAR</code>, <code>DATE</code>,
+ * <code>TIME</code>, <code>DATETIME</code> и <code>DATETIME(шаблон)</code>,
+ * где шаблон записывается по правилам {@link SimpleDateFormat}.
+ * <p>
+ * Время запоминается при создании объекта, поэтому все макросы одного
+ * документа получают одно и то же время. Значение каждого макроса
+ * вычисляется один раз; форматировщики шаблонов <code>DATETIME(...)</code>
+ * общие для всех объектов одного потока, из них хранятся только
+ * {@value #FORMATTERS_CAPACITY} последних использованных.
+ * <p>
+ * Объект не предназначен для использования из нескольких потоков
+ * одновременно.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class TimeMacros implements StringLookup {
+    private static final String PATTERN_PREFIX = "DATETIME(";
+    private static final String PATTERN_SUFFIX = ")";
+
+    private record PatternKey(String pattern, Locale locale) {}
+
+    private static final int FORMATTERS_CAPACITY = 64;
+
+    /**
+     * Форматировщики шаблонов. {@link SimpleDateFormat} нельзя использовать
+     * из нескольких потоков, поэтому у каждого потока свои. Шаблоны берутся
+     * из документов, поэтому в режиме сервера их число не ограничено, и
+     * хранятся только последние.
+     */
+    private static final ThreadLocal<Map<PatternKey, SimpleDateFormat>> formatters = ThreadLocal.withInitial(
+            () -> new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<PatternKey, SimpleDateFormat> eldest) {
+                    return size() > FORMATTERS_CAPACITY;
+                }
+            });
+
+    private final ZonedDateTime now;
+    private final Date date;
+    private final TimeZone timeZone;
+    private final Map<String, String> values = new HashMap<>();
+
+    /**
+     * Создаёт макросы для текущего времени.
+     */
+    public TimeMacros() {
+        this(ZonedDateTime.now());
+    }
+
+    /**
+     * Создаёт макросы для заданного времени.
+     *
+     * @param now время
+     */
+    public TimeMacros(ZonedDateTime now) {
+        this.now = now;
+        this.date = Date.from(now.toInstant());
+        this.timeZone = TimeZone.getTimeZone(now.getZone());
+    }
+
+    /**
+     * Вычисляет значение макроса.
+     *
+     * @param key имя макроса
+     * @return значение или <code>null</code>, если макрос не зависит от
+     * времени
+     * @throws IllegalArgumentException неверный шаблон
+     *         <code>DATETIME(...)</code>
+     */
+    @Override
+    public String lookup(String key) {
+        String value = values.get(key);
+        if (value != null)
+            return value;
+
+        if (key.equals("YEAR")) {
+            value = String.format("%04d", now.getYear());
+        }
+        else if (key.equals("DATE")) {
+            value = format(DateFormat.getDateInstance(DateFormat.SHORT));
+        }
+        else if (key.equals("TIME")) {
+            value = format(DateFormat.getTimeInstance(DateFormat.SHORT));
+        }
+        else if (key.equals("DATETIME")) {
+            value = format(DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT));
+        }
+        else {
+            String pattern = getPattern(key);
+            if (pattern == null)
+                return null;
+
+            PatternKey patternKey = new PatternKey(pattern, Locale.getDefault(Locale.Category.FORMAT));
+            value = format(formatters.get()
+                    .computeIfAbsent(patternKey, k -> new SimpleDateFormat(k.pattern(), k.locale())));
+        }
+
+        values.put(key, value);
+        return value;
+    }
+
+    /**
+     * Возвращает значения всех макросов, которые были вычислены этим
+     * объектом, упорядоченные по имени.
+     *
+     * @return словарь значений
+     */
+    public Map<String, String> getValues() {
+        return Collections.unmodifiableMap(new TreeMap<>(values));
+    }
+
+    private String format(DateFormat format) {
+        format.setTimeZone(timeZone);
+        return format.format(date);
+    }
+
+    private static String getPattern(String key) {
+        if (key.length() < PATTERN_PREFIX.length() + PATTERN_SUFFIX.length()
+                || !key.startsWith(PATTERN_PREFIX) || !key.endsWith(PATTERN_SUFFIX))
+            return null;
+
+        return key.substring(PATTERN_PREFIX.length(), key.length() - PATTERN_SUFFIX.length());
+    }
+}
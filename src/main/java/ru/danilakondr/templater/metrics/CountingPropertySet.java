@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.metrics;
+
+import com.sun.star.beans.*;
+import com.sun.star.lang.IllegalArgumentException;
+import com.sun.star.lang.WrappedTargetException;
+
+/**
+ * Набор свойств, который учитывает каждое обращение к исходному набору.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+class CountingPropertySet implements XPropertySet {
+    private final XPropertySet xProps;
+
+    CountingPropertySet(XPropertySet xProps) {
+        this.xProps = xProps;
+    }
+
+    @Override
+    public XPropertySetInfo getPropertySetInfo() {
+        UnoCalls.count();
+        return xProps.getPropertySetInfo();
+    }
+
+    @Override
+    public void setPropertyValue(String name, Object value)
+            throws UnknownPropertyException, PropertyVetoException,
+            IllegalArgumentException, WrappedTargetException {
+        UnoCalls.count();
+        xProps.setPropertyValue(name, value);
+    }
+
+    @Override
+    public Object getPropertyValue(String name)
+            throws UnknownPropertyException, WrappedTargetException {
+        UnoCalls.count();
+        return xProps.getPropertyValue(name);
+    }
+
+    @Override
+    public void addPropertyChangeListener(String name, XPropertyChangeListener listener)
+            throws UnknownPropertyException, WrappedTargetException {
+        UnoCalls.count();
+        xProps.addPropertyChangeListener(name, listener);
+    }
+
+    @Override
+    public void removePropertyChangeListener(String name, XPropertyChangeListener listener)
+            throws UnknownPropertyException, WrappedTargetException {
+        UnoCalls.count();
+        xProps.removePropertyChangeListener(name, listener);
+    }
+
+    @Override
+    public void addVetoableChangeListener(String name, XVetoableChangeListener listener)
+            throws UnknownPropertyException, WrappedTargetException {
+        UnoCalls.count();
+        xProps.addVetoableChangeListener(name, listener);
+    }
+
+    @Override
+    public void removeVetoableChangeListener(String name, XVetoableChangeListener listener)
+            throws UnknownPropertyException, WrappedTargetException {
+        UnoCalls.count();
+        xProps.removeVetoableChangeListener(name, listener);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Запись показателей обработки в файл в формате JSON Lines: по одному
+ * JSON-объекту {@link PipelineMetrics} на каждый обработанный документ.
+ * Может использоваться из нескольких потоков одновременно.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class MetricsWriter implements Closeable {
+    private final PrintWriter out;
+
+    /**
+     * Открывает файл для записи. Существующий файл перезаписывается.
+     *
+     * @param path путь к файлу
+     */
+    public MetricsWriter(String path) throws IOException {
+        this.out = new PrintWriter(Files.newBufferedWriter(Path.of(path), StandardCharsets.UTF_8));
+    }
+
+    public synchronized void write(PipelineMetrics metrics) {
+        out.println(metrics.toJson());
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() {
+        out.close();
+    }
+}
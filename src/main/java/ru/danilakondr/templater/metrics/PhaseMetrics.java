@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.metrics;
+
+import ru.danilakondr.templater.progress.ProgressInformer;
+
+/**
+ * Показатели одного этапа обработки документа: время выполнения, число
+ * обработанных элементов и число обращений к LibreOffice.
+ * <p>
+ * Этап начинается методом {@link PipelineMetrics#phase(String)} и
+ * завершается методом {@link PhaseMetrics#close()}, поэтому удобно
+ * использовать конструкцию <code>try</code> с ресурсами.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class PhaseMetrics implements AutoCloseable {
+    private final String name;
+    private final PhaseMetrics previous;
+    private final PipelineMetrics.PhaseListener listener;
+    private final long start;
+    private long nanos = -1;
+    // Читаются сторожевым таймером из другого потока
+    private volatile int elements = 0;
+    private volatile int totalElements = 0;
+    private long unoCalls = 0;
+
+    PhaseMetrics(String name, PhaseMetrics previous, PipelineMetrics.PhaseListener listener) {
+        this.name = name;
+        this.previous = previous;
+        this.listener = listener;
+        this.start = System.nanoTime();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Возвращает время выполнения этапа.
+     *
+     * @return время в наносекундах (до завершения этапа &mdash; время с его
+     * начала)
+     */
+    public long getNanos() {
+        return nanos >= 0 ? nanos : System.nanoTime() - start;
+    }
+
+    public int getElements() {
+        return elements;
+    }
+
+    /**
+     * Возвращает общее число элементов этапа, если оно известно.
+     *
+     * @return число элементов или 0
+     */
+    public int getTotalElements() {
+        return totalElements;
+    }
+
+    public long getUnoCalls() {
+        return unoCalls;
+    }
+
+    public void addElements(int n) {
+        elements += n;
+    }
+
+    void countUnoCall() {
+        unoCalls++;
+    }
+
+    /**
+     * Создаёт счётчик прогресса, который передаёт сведения заданному
+     * счётчику и при этом учитывает число обработанных элементов этапа.
+     *
+     * @param informer счётчик прогресса
+     * @return счётчик прогресса этапа
+     */
+    public ProgressInformer track(ProgressInformer informer) {
+        int base = elements;
+        return (current, total) -> {
+            if (current > 0)
+                elements = Math.max(elements, base + current);
+            if (total > 0)
+                totalElements = base + total;
+            informer.inform(current, total);
+        };
+    }
+
+    /**
+     * Завершает этап. Обращения к LibreOffice снова учитываются в этапе,
+     * который выполнялся до начала этого.
+     */
+    @Override
+    public void close() {
+        if (nanos >= 0)
+            return;
+
+        nanos = System.nanoTime() - start;
+        UnoCalls.setCurrent(previous);
+        if (listener != null)
+            listener.phaseFinished(this);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.metrics;
+
+import org.apache.commons.text.StringEscapeUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Показатели обработки одного документа по этапам. Собираются объектом
+ * {@link ru.danilakondr.templater.Templater} и выводятся в виде
+ * JSON-объекта.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class PipelineMetrics {
+    /**
+     * Получатель уведомлений о начале и завершении этапов.
+     */
+    public interface PhaseListener {
+        void phaseStarted(PhaseMetrics phase);
+
+        void phaseFinished(PhaseMetrics phase);
+    }
+
+    private final List<PhaseMetrics> phases = new ArrayList<>();
+    private String document;
+    private PhaseListener phaseListener;
+    private int pagesBefore = -1;
+    private int pagesAfter = -1;
+
+    public String getDocument() {
+        return document;
+    }
+
+    public void setDocument(String document) {
+        this.document = document;
+    }
+
+    /**
+     * Устанавливает получателя уведомлений о начале и завершении этапов.
+     *
+     * @param phaseListener получатель или <code>null</code>
+     */
+    public void setPhaseListener(PhaseListener phaseListener) {
+        this.phaseListener = phaseListener;
+    }
+
+    /**
+     * Записывает изменение числа страниц после подстановки счётчиков.
+     * Подставленное значение <code>%N_PAGES%</code> в таком случае
+     * расходится с итоговым числом страниц.
+     *
+     * @param pagesBefore число страниц при подстановке счётчиков
+     * @param pagesAfter итоговое число страниц
+     */
+    public void setPageCountChange(int pagesBefore, int pagesAfter) {
+        this.pagesBefore = pagesBefore;
+        this.pagesAfter = pagesAfter;
+    }
+
+    public boolean isPageCountChanged() {
+        return pagesBefore != pagesAfter;
+    }
+
+    public List<PhaseMetrics> getPhases() {
+        return Collections.unmodifiableList(phases);
+    }
+
+    /**
+     * Начинает новый этап. До его завершения обращения к LibreOffice через
+     * {@link UnoCalls} в текущем потоке учитываются в этом этапе.
+     *
+     * @param name название этапа
+     * @return показатели этапа
+     */
+    public PhaseMetrics phase(String name) {
+        PhaseMetrics phase = new PhaseMetrics(name, UnoCalls.getCurrent(), phaseListener);
+        phases.add(phase);
+        UnoCalls.setCurrent(phase);
+        if (phaseListener != null)
+            phaseListener.phaseStarted(phase);
+        return phase;
+    }
+
+    /**
+     * Возвращает суммарное время всех этапов.
+     *
+     * @return время в наносекундах
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (PhaseMetrics p : phases)
+            total += p.getNanos();
+        return total;
+    }
+
+    public long getTotalUnoCalls() {
+        long total = 0;
+        for (PhaseMetrics p : phases)
+            total += p.getUnoCalls();
+        return total;
+    }
+
+    /**
+     * Записывает показатели в виде JSON-объекта в одну строку.
+     *
+     * @return JSON-объект
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"document\":");
+        if (document == null)
+            sb.append("null");
+        else
+            sb.append('"').append(StringEscapeUtils.escapeJson(document)).append('"');
+        sb.append(",\"totalMs\":").append(millis(getTotalNanos()));
+        sb.append(",\"unoCalls\":").append(getTotalUnoCalls());
+        if (isPageCountChanged()) {
+            sb.append(",\"pageCountChanged\":{\"from\":").append(pagesBefore);
+            sb.append(",\"to\":").append(pagesAfter).append('}');
+        }
+        sb.append(",\"phases\":[");
+        for (int i = 0; i < phases.size(); i++) {
+            PhaseMetrics p = phases.get(i);
+            if (i > 0)
+                sb.append(',');
+            sb.append("{\"name\":\"").append(StringEscapeUtils.escapeJson(p.getName())).append('"');
+            sb.append(",\"ms\":").append(millis(p.getNanos()));
+            sb.append(",\"elements\":").append(p.getElements());
+            sb.append(",\"unoCalls\":").append(p.getUnoCalls());
+            sb.append('}');
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.metrics;
+
+import com.sun.star.beans.XPropertySet;
+import com.sun.star.uno.UnoRuntime;
+
+/**
+ * Учёт обращений к LibreOffice. Обработчики получают интерфейс
+ * {@link XPropertySet} через метод {@link UnoCalls#propertySet(Object)};
+ * если в текущем потоке выполняется этап обработки, каждый вызов
+ * <code>getPropertyValue()</code>, <code>setPropertyValue()</code> и
+ * других методов учитывается в показателях этого этапа.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public final class UnoCalls {
+    private static final ThreadLocal<PhaseMetrics> current = new ThreadLocal<>();
+
+    private UnoCalls() {}
+
+    static PhaseMetrics getCurrent() {
+        return current.get();
+    }
+
+    static void setCurrent(PhaseMetrics phase) {
+        if (phase == null)
+            current.remove();
+        else
+            current.set(phase);
+    }
+
+    /**
+     * Учитывает одно обращение к LibreOffice в текущем этапе.
+     */
+    public static void count() {
+        PhaseMetrics phase = current.get();
+        if (phase != null)
+            phase.countUnoCall();
+    }
+
+    /**
+     * Запрашивает у объекта интерфейс {@link XPropertySet}. Возвращённый
+     * объект нельзя передавать в LibreOffice и в
+     * {@link UnoRuntime#queryInterface}: он служит только для чтения и
+     * записи свойств.
+     *
+     * @param o объект UNO
+     * @return набор свойств или <code>null</code>, если объект его не
+     * поддерживает
+     */
+    public static XPropertySet propertySet(Object o) {
+        XPropertySet xProps = UnoRuntime.queryInterface(XPropertySet.class, o);
+        if (xProps == null || current.get() == null)
+            return xProps;
+
+        return new CountingPropertySet(xProps);
+    }
+}
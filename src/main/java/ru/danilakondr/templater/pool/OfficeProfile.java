@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.pool;
+
+import com.sun.star.beans.PropertyState;
+import com.sun.star.beans.PropertyValue;
+import com.sun.star.beans.XPropertySet;
+import com.sun.star.frame.XComponentLoader;
+import com.sun.star.frame.XDesktop;
+import com.sun.star.lang.XComponent;
+import com.sun.star.lang.XMultiServiceFactory;
+import com.sun.star.text.XTextDocument;
+import com.sun.star.uno.UnoRuntime;
+import com.sun.star.uno.XComponentContext;
+import com.sun.star.util.XChangesBatch;
+import com.sun.star.util.XCloseable;
+import com.sun.star.util.XFlushable;
+import ooo.connector.BootstrapPipeConnector;
+import ooo.connector.server.OOoServer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Снимок профиля пользователя LibreOffice. При первом запуске с пустым
+ * профилем LibreOffice создаёт конфигурацию, ищет расширения и Java,
+ * строит кэш шрифтов; на чистом контейнере это занимает несколько секунд.
+ * Снимок создаётся один раз ({@link #create}) и затем копируется в
+ * директорию профиля каждого запуска ({@link #copy}), поэтому сам снимок
+ * не изменяется.
+ * <p>
+ * В снимке отключены мастер первого запуска, Java, OpenCL, проверка
+ * обновлений и автосохранение, а кэши шрифтов и модуля Writer уже
+ * заполнены.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public final class OfficeProfile {
+    /**
+     * Файл, по которому директория опознаётся как профиль.
+     */
+    private static final String REGISTRY_FILE = "user/registrymodifications.xcu";
+
+    /**
+     * Настройка конфигурации LibreOffice.
+     *
+     * @param node путь к узлу конфигурации
+     * @param name имя свойства
+     * @param value значение
+     */
+    private record Setting(String node, String name, Object value) {}
+
+    private static final List<Setting> SETTINGS = List.of(
+            new Setting("/org.openoffice.Setup/Office", "FirstStartWizardCompleted", true),
+            new Setting("/org.openoffice.Office.Common/Misc", "FirstRun", false),
+            new Setting("/org.openoffice.Office.Common/Misc", "ShowTipOfTheDay", false),
+            new Setting("/org.openoffice.Office.Common/Misc", "UseOpenCL", false),
+            new Setting("/org.openoffice.Office.Java/VirtualMachine", "Enable", false),
+            new Setting("/org.openoffice.Office.Jobs/Jobs/UpdateCheck/Arguments", "AutoCheckEnabled", false),
+            new Setting("/org.openoffice.Office.Recovery/AutoSave", "Enabled", false),
+            new Setting("/org.openoffice.Office.Recovery/RecoveryInfo", "Enabled", false)
+    );
+
+    private OfficeProfile() {}
+
+    /**
+     * Проверяет, является ли директория снимком профиля.
+     *
+     * @param dir директория
+     * @return <code>true</code>, если в директории есть профиль
+     */
+    public static boolean isProfile(Path dir) {
+        return Files.isRegularFile(dir.resolve(REGISTRY_FILE));
+    }
+
+    /**
+     * Возвращает ключ командной строки LibreOffice, который задаёт
+     * директорию профиля.
+     *
+     * @param dir директория профиля
+     * @return ключ <code>-env:UserInstallation</code>
+     */
+    public static String userInstallationOption(Path dir) {
+        return "-env:UserInstallation=" + dir.toAbsolutePath().toUri();
+    }
+
+    /**
+     * Создаёт снимок профиля: запускает LibreOffice с пустым профилем в
+     * указанной директории, записывает настройки, открывает скрытый
+     * документ Writer и завершает LibreOffice.
+     *
+     * @param oooExecFolder путь к директории, где хранится soffice
+     * @param target директория снимка (не существует или пуста)
+     * @param connectTimeout время ожидания запуска LibreOffice
+     *                       в миллисекундах
+     * @throws IllegalArgumentException директория не пуста
+     */
+    public static void create(String oooExecFolder, Path target, long connectTimeout) throws Exception {
+        if (Files.isDirectory(target)) {
+            try (Stream<Path> files = Files.list(target)) {
+                if (files.findAny().isPresent())
+                    throw new IllegalArgumentException(target + " is not empty");
+            }
+        }
+        Files.createDirectories(target);
+
+        List<String> options = OOoServer.getDefaultOOoOptions();
+        options.add(userInstallationOption(target));
+
+        OOoServer server = new OOoServer(oooExecFolder, options);
+        BootstrapPipeConnector connector = new BootstrapPipeConnector(server);
+        connector.setConnectTimeout(connectTimeout);
+
+        try {
+            XComponentContext xContext = connector.connect(
+                    String.format("templater-profile-%d", ProcessHandle.current().pid()));
+            applySettings(xContext);
+
+            Object oDesktop = xContext.getServiceManager().createInstanceWithContext(
+                    "com.sun.star.frame.Desktop", xContext);
+            XDesktop xDesktop = UnoRuntime.queryInterface(XDesktop.class, oDesktop);
+            warmUp(xDesktop);
+
+            // Профиль записывается на диск при завершении LibreOffice,
+            // поэтому процесс не уничтожается, а завершается сам.
+            xDesktop.terminate();
+            long deadline = System.currentTimeMillis() + connectTimeout;
+            while (server.isAlive() && System.currentTimeMillis() < deadline)
+                Thread.sleep(100);
+        }
+        finally {
+            server.killForcibly();
+        }
+
+        removeLocks(target);
+        if (!isProfile(target))
+            throw new IOException("LibreOffice did not write a profile to " + target);
+    }
+
+    private static void applySettings(XComponentContext xContext) throws Exception {
+        XMultiServiceFactory xProvider = UnoRuntime.queryInterface(XMultiServiceFactory.class,
+                xContext.getServiceManager().createInstanceWithContext(
+                        "com.sun.star.configuration.ConfigurationProvider", xContext));
+
+        for (Setting s : SETTINGS) {
+            PropertyValue nodePath = new PropertyValue("nodepath", 0, s.node(), PropertyState.DIRECT_VALUE);
+            try {
+                Object access = xProvider.createInstanceWithArguments(
+                        "com.sun.star.configuration.ConfigurationUpdateAccess",
+                        new Object[] {nodePath});
+                UnoRuntime.queryInterface(XPropertySet.class, access)
+                        .setPropertyValue(s.name(), s.value());
+                UnoRuntime.queryInterface(XChangesBatch.class, access).commitChanges();
+                UnoRuntime.queryInterface(XComponent.class, access).dispose();
+            }
+            // Настройки нет в этой версии LibreOffice
+            catch (com.sun.star.uno.Exception ignored) {}
+        }
+
+        XFlushable xFlushable = UnoRuntime.queryInterface(XFlushable.class, xProvider);
+        if (xFlushable != null)
+            xFlushable.flush();
+    }
+
+    /**
+     * Открывает и закрывает скрытый документ Writer, чтобы LibreOffice
+     * построил кэш шрифтов и записал в профиль настройки модуля.
+     */
+    private static void warmUp(XDesktop xDesktop) throws Exception {
+        XComponentLoader xLoader = UnoRuntime.queryInterface(XComponentLoader.class, xDesktop);
+        PropertyValue hidden = new PropertyValue("Hidden", 0, true, PropertyState.DIRECT_VALUE);
+
+        XComponent xComponent = xLoader.loadComponentFromURL(
+                "private:factory/swriter", "_blank", 0, new PropertyValue[] {hidden});
+        try {
+            XTextDocument xDoc = UnoRuntime.queryInterface(XTextDocument.class, xComponent);
+            xDoc.getText().setString("Шаблон документа. Document template. 0123456789 α β γ ∑ ∫");
+            UnoRuntime.queryInterface(XPropertySet.class, xDoc.getCurrentController())
+                    .getPropertyValue("PageCount");
+        }
+        finally {
+            UnoRuntime.queryInterface(XCloseable.class, xComponent).close(true);
+        }
+    }
+
+    private static boolean isLock(Path p) {
+        String name = p.getFileName().toString();
+        return name.equals(".lock") || (name.startsWith(".~lock.") && name.endsWith("#"));
+    }
+
+    private static void removeLocks(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.filter(OfficeProfile::isLock)::iterator)
+                Files.deleteIfExists(p);
+        }
+    }
+
+    /**
+     * Копирует снимок профиля в директорию профиля. Файлы копируются, а не
+     * связываются жёсткими ссылками: LibreOffice перезаписывает файлы
+     * профиля на месте, и изменения попали бы в снимок.
+     *
+     * @param template директория снимка
+     * @param profileDir директория профиля
+     * @throws IOException директория не является снимком профиля или
+     *                     ошибка копирования
+     */
+    public static void copy(Path template, Path profileDir) throws IOException {
+        if (!isProfile(template))
+            throw new IOException(template + " is not a LibreOffice profile");
+
+        try (Stream<Path> files = Files.walk(template)) {
+            for (Path src : (Iterable<Path>) files::iterator) {
+                if (isLock(src))
+                    continue;
+
+                Path dst = profileDir.resolve(template.relativize(src).toString());
+                if (Files.isDirectory(src))
+                    Files.createDirectories(dst);
+                else
+                    Files.copy(src, dst, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * Копирует снимок профиля во временную директорию. Директорию можно
+     * удалить ({@link #delete(Path)}) только после завершения LibreOffice,
+     * который её использует.
+     *
+     * @param template директория снимка
+     * @return временная директория профиля
+     */
+    public static Path copyToTemporary(Path template) throws IOException {
+        Path profileDir = Files.createTempDirectory("templater-profile-");
+        copy(template, profileDir);
+        return profileDir;
+    }
+
+    /**
+     * Удаляет директорию профиля.
+     *
+     * @param dir директория
+     */
+    public static void delete(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder())
+                    .forEach(p -> p.toFile().delete());
+        }
+        catch (IOException ignored) {}
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.pool;
+
+import com.sun.star.comp.helper.BootstrapException;
+import com.sun.star.frame.XDesktop;
+import com.sun.star.uno.UnoRuntime;
+import com.sun.star.uno.XComponentContext;
+import ooo.connector.BootstrapConnector;
+import ooo.connector.BootstrapPipeConnector;
+import ooo.connector.server.OOoServer;
+import ru.danilakondr.templater.macros.IncludeCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Рабочий процесс LibreOffice. Каждый рабочий процесс запускается со своим
+ * именованным каналом и своим профилем пользователя
+ * (<code>-env:UserInstallation</code>), поэтому на одной машине может
+ * одновременно работать несколько процессов.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class OfficeWorker {
+    private final int id;
+    private final String oooExecFolder;
+    private final Path profileDir;
+
+    // Читается без блокировки, чтобы kill() мог завершить зависший процесс
+    private volatile OOoServer server;
+    private BootstrapPipeConnector connector;
+    private XComponentContext xContext;
+    private XDesktop xDesktop;
+    private IncludeCache includeCache;
+    private int generation = 0;
+    private long connectTimeout = BootstrapConnector.DEFAULT_CONNECT_TIMEOUT;
+
+    /**
+     * Создаёт рабочий процесс (но не запускает его).
+     *
+     * @param id номер рабочего процесса
+     * @param oooExecFolder путь к директории, где хранится soffice
+     * @throws IOException ошибка при создании директории профиля
+     */
+    public OfficeWorker(int id, String oooExecFolder) throws IOException {
+        this.id = id;
+        this.oooExecFolder = oooExecFolder;
+        this.profileDir = Files.createTempDirectory("templater-worker-" + id + "-");
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Устанавливает время ожидания запуска LibreOffice.
+     *
+     * @param millis время в миллисекундах
+     */
+    public synchronized void setConnectTimeout(long millis) {
+        this.connectTimeout = millis;
+    }
+
+    /**
+     * Заполняет директорию профиля копией снимка профиля. Вызывается до
+     * первого запуска: при перезапуске профиль сохраняется.
+     *
+     * @param template директория снимка
+     * @throws IOException ошибка копирования
+     * @see OfficeProfile
+     */
+    public synchronized void setProfileTemplate(Path template) throws IOException {
+        OfficeProfile.copy(template, profileDir);
+    }
+
+    public synchronized XComponentContext getContext() {
+        return xContext;
+    }
+
+    /**
+     * Возвращает &laquo;рабочий стол&raquo; LibreOffice. Он создаётся один
+     * раз и используется всеми заданиями до перезапуска процесса.
+     *
+     * @return рабочий стол
+     */
+    public XDesktop getDesktop() throws Exception {
+        XComponentContext ctx;
+        synchronized (this) {
+            if (xDesktop != null)
+                return xDesktop;
+            ctx = xContext;
+        }
+        if (ctx == null)
+            throw new IllegalStateException(this + " is not running");
+
+        // Вызов UNO выполняется без блокировки, чтобы kill() не ждал
+        // зависшего процесса
+        XDesktop desktop = UnoRuntime.queryInterface(XDesktop.class,
+                ctx.getServiceManager().createInstanceWithContext("com.sun.star.frame.Desktop", ctx));
+
+        synchronized (this) {
+            if (xContext != ctx)
+                return desktop;
+            if (xDesktop == null)
+                xDesktop = desktop;
+            return xDesktop;
+        }
+    }
+
+    /**
+     * Возвращает кэш включаемых документов. Кэш используется всеми
+     * заданиями до перезапуска процесса.
+     *
+     * @return кэш включаемых документов
+     */
+    public IncludeCache getIncludeCache() throws Exception {
+        synchronized (this) {
+            if (includeCache != null)
+                return includeCache;
+        }
+
+        XDesktop desktop = getDesktop();
+        synchronized (this) {
+            if (xDesktop != desktop)
+                return new IncludeCache(desktop);
+            if (includeCache == null)
+                includeCache = new IncludeCache(desktop);
+            return includeCache;
+        }
+    }
+
+    /**
+     * Запускает LibreOffice и подключается к нему.
+     */
+    public void start() throws BootstrapException {
+        List<String> options = OOoServer.getDefaultOOoOptions();
+        options.add(OfficeProfile.userInstallationOption(profileDir));
+
+        String pipeName;
+        long timeout;
+        synchronized (this) {
+            pipeName = String.format("templater-%d-%d-%d",
+                    ProcessHandle.current().pid(), id, generation++);
+            timeout = connectTimeout;
+        }
+
+        OOoServer s = new OOoServer(oooExecFolder, options);
+        BootstrapPipeConnector c = new BootstrapPipeConnector(s);
+        c.setConnectTimeout(timeout);
+        // Процесс доступен kill() ещё до подключения к нему
+        server = s;
+        XComponentContext ctx = c.connect(pipeName);
+
+        synchronized (this) {
+            connector = c;
+            xContext = ctx;
+        }
+    }
+
+    /**
+     * Проверяет, работает ли процесс LibreOffice и отвечает ли он на
+     * запросы.
+     */
+    public boolean isHealthy() {
+        OOoServer s = server;
+        XComponentContext ctx;
+        synchronized (this) {
+            ctx = xContext;
+        }
+        if (s == null || !s.isAlive() || ctx == null)
+            return false;
+
+        try {
+            return ctx.getServiceManager() != null;
+        }
+        catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Принудительно завершает процесс LibreOffice. Используется, когда
+     * процесс завис; все текущие вызовы UNO при этом завершаются
+     * с исключением. Процесс завершается до захвата блокировки, которую
+     * может удерживать поток, ожидающий ответа от зависшего процесса.
+     */
+    public void kill() {
+        OOoServer s = server;
+        if (s != null)
+            s.killForcibly();
+
+        synchronized (this) {
+            xContext = null;
+            xDesktop = null;
+            includeCache = null;
+        }
+    }
+
+    /**
+     * Завершает процесс LibreOffice.
+     */
+    public void stop() {
+        OOoServer s = server;
+        BootstrapPipeConnector c;
+        IncludeCache cache;
+        synchronized (this) {
+            server = null;
+            c = connector;
+            cache = includeCache;
+            connector = null;
+            xContext = null;
+            xDesktop = null;
+            includeCache = null;
+        }
+
+        if (cache != null && s != null && s.isAlive())
+            cache.close();
+        if (c != null && s != null && s.isAlive())
+            c.disconnect();
+        if (s != null)
+            s.killForcibly();
+    }
+
+    /**
+     * Перезапускает процесс LibreOffice.
+     */
+    public void restart() throws BootstrapException {
+        stop();
+        start();
+    }
+
+    /**
+     * Завершает процесс LibreOffice и удаляет директорию профиля.
+     */
+    public void close() {
+        stop();
+        OfficeProfile.delete(profileDir);
+    }
+
+    @Override
+    public String toString() {
+        return "worker #" + id;
+    }
+}
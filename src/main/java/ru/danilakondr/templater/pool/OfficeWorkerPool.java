@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.pool;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пул рабочих процессов LibreOffice. Задание получает первый свободный
+ * рабочий процесс. Если процесс аварийно завершился или задание не уложилось
+ * в отведённое время, процесс перезапускается.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class OfficeWorkerPool implements AutoCloseable {
+    private final List<OfficeWorker> workers;
+    private final BlockingQueue<OfficeWorker> idle;
+    private final ScheduledExecutorService watchdog;
+    private final AtomicInteger restarts = new AtomicInteger(0);
+    private long jobDeadline = 0;
+
+    /**
+     * Функциональный интерфейс задания, выполняемого рабочим процессом.
+     *
+     * @param <T> тип результата
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+        T run(OfficeWorker worker) throws Exception;
+    }
+
+    /**
+     * Создаёт пул (но не запускает рабочие процессы).
+     *
+     * @param oooExecFolder путь к директории, где хранится soffice
+     * @param size число рабочих процессов
+     * @throws IOException ошибка при создании директорий профилей
+     */
+    public OfficeWorkerPool(String oooExecFolder, int size) throws IOException {
+        if (size < 1)
+            throw new IllegalArgumentException("Pool size must be positive");
+
+        this.workers = new ArrayList<>();
+        this.idle = new LinkedBlockingQueue<>();
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Office worker watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+
+        for (int i = 0; i < size; i++)
+            workers.add(new OfficeWorker(i + 1, oooExecFolder));
+    }
+
+    /**
+     * Устанавливает предельное время выполнения одного задания. По истечении
+     * этого времени процесс LibreOffice принудительно завершается и
+     * перезапускается.
+     *
+     * @param millis время в миллисекундах (0 &mdash; без ограничения)
+     */
+    public void setJobDeadline(long millis) {
+        this.jobDeadline = millis;
+    }
+
+    /**
+     * Устанавливает время ожидания запуска LibreOffice для всех рабочих
+     * процессов.
+     *
+     * @param millis время в миллисекундах
+     */
+    public void setConnectTimeout(long millis) {
+        for (OfficeWorker w : workers)
+            w.setConnectTimeout(millis);
+    }
+
+    /**
+     * Заполняет профили всех рабочих процессов копией снимка профиля.
+     * Вызывается до запуска пула.
+     *
+     * @param template директория снимка или <code>null</code>, если
+     *                 процессы запускаются с пустым профилем
+     * @throws IOException ошибка копирования
+     * @see OfficeProfile
+     */
+    public void setProfileTemplate(Path template) throws IOException {
+        if (template == null)
+            return;
+
+        for (OfficeWorker w : workers)
+            w.setProfileTemplate(template);
+    }
+
+    public int size() {
+        return workers.size();
+    }
+
+    public int getRestartCount() {
+        return restarts.get();
+    }
+
+    /**
+     * Запускает все рабочие процессы параллельно.
+     */
+    public void start() throws Exception {
+        ExecutorService starter = Executors.newFixedThreadPool(workers.size());
+        try {
+            List<Future<?>> started = new ArrayList<>();
+            for (OfficeWorker w : workers) {
+                started.add(starter.submit(() -> {
+                    w.start();
+                    return null;
+                }));
+            }
+
+            for (Future<?> f : started) {
+                try {
+                    f.get();
+                }
+                catch (ExecutionException e) {
+                    throw (Exception) e.getCause();
+                }
+            }
+        }
+        finally {
+            starter.shutdown();
+        }
+
+        idle.addAll(workers);
+    }
+
+    /**
+     * Выполняет задание на первом свободном рабочем процессе. Если свободных
+     * процессов нет, ожидает освобождения.
+     *
+     * @param task задание
+     * @return результат задания
+     * @throws TimeoutException задание не уложилось в отведённое время
+     * @throws Exception ошибка при выполнении задания
+     */
+    public <T> T execute(Task<T> task) throws Exception {
+        OfficeWorker worker = idle.take();
+        try {
+            if (!worker.isHealthy())
+                restart(worker);
+
+            return runWithDeadline(worker, task);
+        }
+        finally {
+            if (!worker.isHealthy()) {
+                try {
+                    restart(worker);
+                }
+                catch (Exception e) {
+                    System.err.printf("Failed to restart %s: %s%n", worker, e.getMessage());
+                }
+            }
+            idle.add(worker);
+        }
+    }
+
+    private <T> T runWithDeadline(OfficeWorker worker, Task<T> task) throws Exception {
+        if (jobDeadline <= 0)
+            return task.run(worker);
+
+        AtomicBoolean expired = new AtomicBoolean(false);
+        ScheduledFuture<?> kill = watchdog.schedule(() -> {
+            expired.set(true);
+            worker.kill();
+        }, jobDeadline, TimeUnit.MILLISECONDS);
+
+        T result;
+        try {
+            result = task.run(worker);
+        }
+        catch (Exception e) {
+            if (expired.get())
+                throw deadlineExceeded(worker);
+            throw e;
+        }
+        finally {
+            kill.cancel(false);
+        }
+
+        // Задание может само обработать ошибку, вызванную завершением процесса
+        if (expired.get())
+            throw deadlineExceeded(worker);
+        return result;
+    }
+
+    private TimeoutException deadlineExceeded(OfficeWorker worker) {
+        return new TimeoutException(String.format(
+                "Job exceeded deadline of %d ms, %s has been restarted",
+                jobDeadline, worker));
+    }
+
+    private void restart(OfficeWorker worker) throws Exception {
+        restarts.incrementAndGet();
+        worker.restart();
+    }
+
+    /**
+     * Завершает все рабочие процессы.
+     */
+    @Override
+    public void close() {
+        watchdog.shutdownNow();
+        for (OfficeWorker w : workers)
+            w.close();
+    }
+}
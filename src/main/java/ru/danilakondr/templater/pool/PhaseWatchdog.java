@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.pool;
+
+import ru.danilakondr.templater.metrics.PhaseMetrics;
+import ru.danilakondr.templater.metrics.PipelineMetrics;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сторожевой таймер этапов обработки документа. Если этап выполняется
+ * дольше отведённого времени (например, LibreOffice завис на одной из
+ * формул), процесс LibreOffice принудительно завершается: все текущие
+ * вызовы UNO завершаются с исключением, задание завершается с ошибкой, а
+ * пул перезапускает процесс для следующего задания.
+ * <p>
+ * Время отсчитывается от начала каждого этапа, в том числе вложенного.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class PhaseWatchdog implements PipelineMetrics.PhaseListener, AutoCloseable {
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Phase watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final OfficeWorker worker;
+    private final long deadline;
+    private final Map<PhaseMetrics, ScheduledFuture<?>> pending = new IdentityHashMap<>();
+    private volatile String diagnostic;
+
+    /**
+     * Создаёт сторожевой таймер.
+     *
+     * @param worker рабочий процесс, который завершается по истечении
+     *               времени
+     * @param deadline предельное время выполнения одного этапа
+     *                 в миллисекундах
+     */
+    public PhaseWatchdog(OfficeWorker worker, long deadline) {
+        this.worker = worker;
+        this.deadline = deadline;
+    }
+
+    @Override
+    public synchronized void phaseStarted(PhaseMetrics phase) {
+        if (diagnostic != null)
+            return;
+
+        pending.put(phase, timer.schedule(() -> expire(phase), deadline, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public synchronized void phaseFinished(PhaseMetrics phase) {
+        ScheduledFuture<?> f = pending.remove(phase);
+        if (f != null)
+            f.cancel(false);
+    }
+
+    private void expire(PhaseMetrics phase) {
+        synchronized (this) {
+            if (diagnostic != null || pending.remove(phase) == null)
+                return;
+
+            diagnostic = describe(phase);
+            pending.values().forEach(f -> f.cancel(false));
+            pending.clear();
+        }
+
+        worker.kill();
+    }
+
+    private String describe(PhaseMetrics phase) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Phase \"%s\" exceeded deadline of %d ms", phase.getName(), deadline));
+
+        int elements = phase.getElements();
+        int total = phase.getTotalElements();
+        if (total > 0)
+            sb.append(String.format(" at element %d of %d", Math.min(elements + 1, total), total));
+        else if (elements > 0)
+            sb.append(String.format(" after element %d", elements));
+
+        sb.append(String.format(", %s has been restarted", worker));
+        return sb.toString();
+    }
+
+    /**
+     * Проверяет, истекло ли время одного из этапов.
+     *
+     * @return <code>true</code>, если процесс LibreOffice был завершён
+     */
+    public boolean hasExpired() {
+        return diagnostic != null;
+    }
+
+    /**
+     * Возвращает сообщение об этапе, время которого истекло.
+     *
+     * @return сообщение или <code>null</code>
+     */
+    public String getDiagnostic() {
+        return diagnostic;
+    }
+
+    /**
+     * Отменяет ожидание всех незавершённых этапов.
+     */
+    @Override
+    public synchronized void close() {
+        pending.values().forEach(f -> f.cancel(false));
+        pending.clear();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ru.danilakondr.templater.processing;
+
+import ru.danilakondr.templater.metrics.PhaseMetrics;
+import ru.danilakondr.templater.metrics.PipelineMetrics;
+import ru.danilakondr.templater.progress.ProgressInformer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Отложенные действия, которые зависят от разметки страниц. Каждое
+ * обновление указателей или чтение числа страниц заставляет LibreOffice
+ * заново разметить документ, поэтому такие действия не выполняются сразу,
+ * а регистрируются во время обработки и выполняются один раз в конце в
+ * следующем порядке:
+ * <ol>
+ *     <li>обновление всех указателей (оглавлений и т. д.), если оно было
+ *     запрошено;</li>
+ *     <li>действия, зависящие от разметки (например, подстановка счётчиков
+ *     страниц), в порядке регистрации;</li>
+ *     <li>проверка того, что число страниц не изменилось после этих
+ *     действий. Если изменилось, указатели обновляются ещё раз, чтобы номера
+ *     страниц в них остались верными. Сами действия повторно не выполняются
+ *     (например, подставленные счётчики уже нельзя найти в тексте), поэтому
+ *     вызывающий код должен проверить {@link #isPageCountStable()}.</li>
+ * </ol>
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class DeferredUpdates {
+    /**
+     * Действие, зависящее от разметки страниц.
+     */
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    private record NamedTask(String name, Task task) {}
+
+    private boolean indexUpdateRequested = false;
+    private final List<NamedTask> tasks = new ArrayList<>();
+    private int pagesBefore = -1;
+    private int pagesAfter = -1;
+
+    /**
+     * Запрашивает обновление всех указателей документа.
+     */
+    public void requestIndexUpdate() {
+        indexUpdateRequested = true;
+    }
+
+    public boolean isIndexUpdateRequested() {
+        return indexUpdateRequested;
+    }
+
+    /**
+     * Регистрирует действие, которое выполняется после обновления
+     * указателей.
+     *
+     * @param name название этапа в показателях обработки
+     * @param task действие
+     */
+    public void afterIndexes(String name, Task task) {
+        tasks.add(new NamedTask(name, task));
+    }
+
+    /**
+     * Выполняет все зарегистрированные действия.
+     *
+     * @param document документ
+     * @param metrics показатели обработки
+     * @param informer счётчик процесса обновления указателей
+     */
+    public void run(TextDocument document, PipelineMetrics metrics, ProgressInformer informer) throws Exception {
+        if (indexUpdateRequested)
+            updateIndexes(document, metrics, informer, "update-indexes");
+        if (tasks.isEmpty())
+            return;
+
+        pagesBefore = document.getPageCount();
+        for (NamedTask t : tasks) {
+            try (PhaseMetrics ignored = metrics.phase(t.name())) {
+                t.task().run();
+            }
+        }
+        pagesAfter = document.getPageCount();
+
+        if (pagesAfter != pagesBefore && indexUpdateRequested) {
+            updateIndexes(document, metrics, informer, "update-indexes-again");
+            pagesAfter = document.getPageCount();
+        }
+    }
+
+    private static void updateIndexes(TextDocument document, PipelineMetrics metrics,
+                                      ProgressInformer informer, String phaseName) {
+        try (PhaseMetrics ignored = metrics.phase(phaseName)) {
+            document.updateAllIndexes(informer);
+        }
+    }
+
+    /**
+     * Сообщает, сохранилось ли число страниц после действий, зависящих от
+     * разметки.
+     *
+     * @return <code>true</code>, если число страниц не изменилось или
+     * действий не было
+     */
+    public boolean isPageCountStable() {
+        return pagesBefore == pagesAfter;
+    }
+
+    /**
+     * Возвращает число страниц до действий, зависящих от разметки.
+     *
+     * @return число страниц или -1, если действия не выполнялись
+     */
+    public int getPagesBefore() {
+        return pagesBefore;
+    }
+
+    /**
+     * Возвращает окончательное число страниц.
+     *
+     * @return число страниц или -1, если действия не выполнялись
+     */
+    public int getPagesAfter() {
+        return pagesAfter;
+    }
+}
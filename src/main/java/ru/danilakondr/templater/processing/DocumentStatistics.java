@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.processing;
+
+import com.sun.star.beans.UnknownPropertyException;
+import com.sun.star.beans.XPropertySet;
+import com.sun.star.text.XTextContent;
+import com.sun.star.uno.AnyConverter;
+import ru.danilakondr.templater.metrics.UnoCalls;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Статистика документа: число рисунков, таблиц, формул и изображений.
+ * Заполняется во время обходов документа, которые и так выполняются при
+ * его обработке, поэтому для подсчёта не нужны отдельные проходы по
+ * документу.
+ * <p>
+ * Счётчики хранятся по именам макросов, в которые они подставляются
+ * (<code>N_FIGURES</code>, <code>N_TABLES</code>, <code>N_FORMULAS</code>,
+ * <code>N_IMAGES</code>).
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class DocumentStatistics {
+    public static final String FIGURES = "N_FIGURES";
+    public static final String TABLES = "N_TABLES";
+    public static final String FORMULAS = "N_FORMULAS";
+    public static final String IMAGES = "N_IMAGES";
+
+    /**
+     * Стили абзацев, которые подсчитываются при обходе абзацев, и
+     * соответствующие им счётчики.
+     */
+    private static final Map<String, String> PARAGRAPH_STYLES = Map.of(
+            "FigureWithCaption", FIGURES
+    );
+
+    private final Map<String, Integer> counters = new HashMap<>();
+
+    /**
+     * Устанавливает значение счётчика.
+     *
+     * @param name имя счётчика
+     * @param value значение
+     */
+    public void set(String name, int value) {
+        counters.put(name, value);
+    }
+
+    /**
+     * Возвращает значение счётчика.
+     *
+     * @param name имя счётчика
+     * @return значение или <code>null</code>, если счётчик не заполнялся
+     */
+    public Integer get(String name) {
+        return counters.get(name);
+    }
+
+    /**
+     * Подсчитывает абзацы со стилями рисунков поиском по стилю, без обхода
+     * абзацев. Используется, если абзацы не перебираются целиком (см.
+     * {@link TextDocument#processListParagraphs}); результат совпадает с
+     * подсчётом при переборе абзацев ({@link #paragraphCounter()}).
+     *
+     * @param document документ
+     */
+    public void countParagraphs(TextDocument document) throws Exception {
+        for (Map.Entry<String, String> e : PARAGRAPH_STYLES.entrySet())
+            counters.put(e.getValue(), document.countParagraphsWithStyle(e.getKey()));
+    }
+
+    /**
+     * Создаёт обработчик абзацев, который подсчитывает абзацы со стилями
+     * рисунков. Обработчик нужно добавить в цепочку обработчиков абзацев
+     * (см. {@link TextDocument.ObjectProcessor#chain}); счётчики абзацев
+     * при этом обнуляются.
+     *
+     * @return обработчик абзацев
+     */
+    public TextDocument.ObjectProcessor<XTextContent> paragraphCounter() {
+        for (String name : PARAGRAPH_STYLES.values())
+            counters.put(name, 0);
+
+        return (xParagraph, xDoc) -> {
+            XPropertySet xParProp = UnoCalls.propertySet(xParagraph);
+            if (xParProp == null)
+                return;
+
+            try {
+                String styleName = AnyConverter
+                        .toString(xParProp.getPropertyValue("ParaStyleName"));
+                String counter = PARAGRAPH_STYLES.get(styleName);
+                if (counter != null)
+                    counters.merge(counter, 1, Integer::sum);
+            }
+            // Таблица, а не абзац
+            catch (UnknownPropertyException ignored) {}
+            catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+}
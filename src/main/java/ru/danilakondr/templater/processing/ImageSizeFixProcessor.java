@@ -22,7 +22,6 @@ package ru.danilakondr.templater.processing;
 import com.sun.star.awt.Size;
 import com.sun.star.beans.XPropertySet;
 import com.sun.star.text.XTextDocument;
-import com.sun.star.uno.UnoRuntime;
 
 /**
  * Обработчик изображений. Изменяет размеры изображений таким образом, чтобы
@@ -33,14 +32,13 @@ import com.sun.star.uno.UnoRuntime;
  * @author Данила А. Кондратенко
  * @since 0.3.0, 0.2.6
  */
-public class ImageSizeFixProcessor implements TextDocument.ObjectProcessor<Object> {
+public class ImageSizeFixProcessor implements TextDocument.ObjectProcessor<TextObject> {
     private static final int TEXT_WIDTH = 16500;
     private static final int TEXT_HEIGHT = 23000;
     @Override
-    public void process(Object oImage, XTextDocument xDoc) {
+    public void process(TextObject image, XTextDocument xDoc) {
         try {
-            XPropertySet xImage = UnoRuntime
-                    .queryInterface(XPropertySet.class, oImage);
+            XPropertySet xImage = image.getPropertySet();
 
 
             Size actualSize = (Size) xImage.getPropertyValue("ActualSize");
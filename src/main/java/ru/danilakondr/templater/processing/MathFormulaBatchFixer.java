@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.processing;
+
+import com.sun.star.beans.XPropertySet;
+import com.sun.star.document.XEmbeddedObjectSupplier2;
+import com.sun.star.embed.EmbedUpdateModes;
+import com.sun.star.uno.Exception;
+import com.sun.star.uno.UnoRuntime;
+import ru.danilakondr.templater.metrics.UnoCalls;
+import ru.danilakondr.templater.progress.ProgressInformer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Пакетный обработчик формул. Вместо того чтобы исправлять каждую формулу
+ * по отдельности, работает в три этапа:
+ * <ol>
+ *     <li>сначала из LibreOffice читаются тексты всех формул;</li>
+ *     <li>затем формулы исправляются параллельно
+ *     ({@link StarMathFixer#fixFormula(String)}), без обращений к
+ *     LibreOffice;</li>
+ *     <li>в конце в LibreOffice записываются только те формулы, текст которых
+ *     изменился. Только для них включается постоянное обновление
+ *     изображения объекта.</li>
+ * </ol>
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class MathFormulaBatchFixer {
+    private int changed = 0;
+    private int untouched = 0;
+
+    public int getChanged() {
+        return changed;
+    }
+
+    public int getUntouched() {
+        return untouched;
+    }
+
+    /**
+     * Исправляет формулы.
+     *
+     * @param formulas формулы
+     * @param progress счётчик прогресса
+     */
+    public void fix(Collection<TextObject> formulas, ProgressInformer progress) throws Exception {
+        List<TextObject> objects = new ArrayList<>(formulas);
+        int total = objects.size();
+
+        XPropertySet[] models = new XPropertySet[total];
+        String[] texts = new String[total];
+        for (int i = 0; i < total; i++) {
+            progress.inform(i + 1, total);
+
+            models[i] = UnoCalls.propertySet(objects.get(i)
+                    .getPropertySet()
+                    .getPropertyValue("Model"));
+            texts[i] = (String) models[i].getPropertyValue("Formula");
+        }
+
+        String[] fixed = new String[total];
+        IntStream.range(0, total)
+                .parallel()
+                .forEach(i -> fixed[i] = StarMathFixer.fixFormula(texts[i]));
+
+        for (int i = 0; i < total; i++) {
+            if (fixed[i].equals(texts[i])) {
+                untouched++;
+                continue;
+            }
+
+            UnoRuntime.queryInterface(XEmbeddedObjectSupplier2.class, objects.get(i).getObject())
+                    .getExtendedControlOverEmbeddedObject()
+                    .setUpdateMode(EmbedUpdateModes.ALWAYS_UPDATE);
+            models[i].setPropertyValue("Formula", fixed[i]);
+            changed++;
+        }
+    }
+}
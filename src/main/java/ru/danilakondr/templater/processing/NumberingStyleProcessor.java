@@ -29,38 +29,84 @@ import com.sun.star.text.PositionAndSpaceMode;
 import com.sun.star.text.XTextContent;
 import com.sun.star.text.XTextDocument;
 import com.sun.star.uno.UnoRuntime;
+import ru.danilakondr.templater.metrics.UnoCalls;
 
-import java.util.function.Consumer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Обработчик стилей нумерации. Изначально был отдельным процессором, который
  * содержал в себе документ, однако позже реализован в виде функционального
  * класса-обработчика.
+ * <p>
+ * Каждый стиль нумерации обрабатывается один раз: правила нумерации
+ * записываются в стиль, поэтому абзацы с уже обработанным стилем
+ * пропускаются. Если правила уже исправлены, они не записываются заново.
  *
  * @author Данила А. Кондратенко
  * @since 0.3.0, 0.2.7
  */
 public class NumberingStyleProcessor implements TextDocument.ObjectProcessor<XTextContent> {
+    /**
+     * Действие над свойством уровня нумерации.
+     */
+    @FunctionalInterface
+    private interface LevelAction {
+        /**
+         * Вычисляет новое значение свойства.
+         *
+         * @param levelIndex номер уровня (с 0)
+         * @param isBullet является ли уровень маркированным
+         * @return новое значение или <code>null</code>, если свойство не
+         * изменяется
+         */
+        Object apply(int levelIndex, boolean isBullet);
+    }
+
+    private static final Map<String, LevelAction> actions = Map.of(
+            "ParentNumbering", (i, bullet) -> (short) (i + 1),
+            "IndentAt", (i, bullet) -> 0,
+            "FirstLineIndent", (i, bullet) -> 1250,
+            "LeftMargin", (i, bullet) -> 0,
+            "PositionAndSpaceMode", (i, bullet) -> PositionAndSpaceMode.LABEL_ALIGNMENT,
+            "LabelFollowedBy", (i, bullet) -> LabelFollow.SPACE,
+            "Prefix", (i, bullet) -> bullet ? null : "",
+            "Suffix", (i, bullet) -> bullet ? null : ")",
+            "ListFormat", (i, bullet) -> bullet ? null : listFormat(i),
+            "BulletChar", (i, bullet) -> bullet ? "\u2014" : null
+    );
+
+    /**
+     * Имена уже обработанных стилей нумерации.
+     */
+    private final Set<String> processedStyles = new HashSet<>();
+
     @Override
     public void process(XTextContent xParagraph, XTextDocument xDoc) {
-        XPropertySet xParProp = UnoRuntime
-                .queryInterface(XPropertySet.class, xParagraph);
+        XPropertySet xParProp = UnoCalls.propertySet(xParagraph);
 
         try {
             String styleName = (String) xParProp.getPropertyValue("NumberingStyleName");
             if (styleName == null || styleName.isEmpty() || styleName.compareTo("Outline") == 0)
                 return;
+            if (!processedStyles.add(styleName))
+                return;
 
             XIndexReplace xRules = UnoRuntime
                     .queryInterface(XIndexReplace.class,
                             xParProp.getPropertyValue("NumberingRules"));
 
+            boolean changed = false;
             for (int i = 0; i < 4; i++) {
                 PropertyValue[] levelProps = (PropertyValue[])xRules.getByIndex(i);
-                processSingleLevel(i, levelProps);
-                xRules.replaceByIndex(i, levelProps);
+                if (processSingleLevel(i, levelProps)) {
+                    xRules.replaceByIndex(i, levelProps);
+                    changed = true;
+                }
             }
-            xParProp.setPropertyValue("NumberingRules", xRules);
+            if (changed)
+                xParProp.setPropertyValue("NumberingRules", xRules);
         }
         // Значит, это не совсем абзац...
         catch (UnknownPropertyException ignored) {}
@@ -69,40 +115,39 @@ public class NumberingStyleProcessor implements TextDocument.ObjectProcessor<XTe
         }
     }
 
-    private void processSingleLevel(int levelIndex, PropertyValue[] levelProps) {
+    /**
+     * Исправляет свойства одного уровня нумерации.
+     *
+     * @param levelIndex номер уровня (с 0)
+     * @param levelProps свойства уровня
+     * @return <code>true</code>, если хотя бы одно свойство изменилось
+     */
+    boolean processSingleLevel(int levelIndex, PropertyValue[] levelProps) {
         boolean isBullet = false;
+        boolean changed = false;
 
-        for (int j = 0; j < levelProps.length; j++) {
-            if (levelProps[j].Name.compareTo("NumberingType") == 0)
-                if (NumberingType.CHAR_SPECIAL == (Short)levelProps[j].Value)
+        for (PropertyValue p : levelProps) {
+            if (p.Name.equals("NumberingType")) {
+                if (NumberingType.CHAR_SPECIAL == (Short) p.Value)
                     isBullet = true;
+                continue;
+            }
+
+            LevelAction action = actions.get(p.Name);
+            if (action == null)
+                continue;
 
-            if (levelProps[j].Name.compareTo("ParentNumbering") == 0)
-                levelProps[j].Value = (short)(levelIndex+1);
-            if (levelProps[j].Name.compareTo("IndentAt") == 0)
-                levelProps[j].Value = 0;
-            if (levelProps[j].Name.compareTo("FirstLineIndent") == 0)
-                levelProps[j].Value = 1250;
-            if (levelProps[j].Name.compareTo("LeftMargin") == 0)
-                levelProps[j].Value = 0;
-            if (levelProps[j].Name.compareTo("PositionAndSpaceMode") == 0)
-                levelProps[j].Value = PositionAndSpaceMode.LABEL_ALIGNMENT;
-            if (levelProps[j].Name.compareTo("LabelFollowedBy") == 0)
-                levelProps[j].Value = LabelFollow.SPACE;
-
-            if (!isBullet && levelProps[j].Name.compareTo("Prefix") == 0)
-                levelProps[j].Value = "";
-            if (!isBullet && levelProps[j].Name.compareTo("Suffix") == 0)
-                levelProps[j].Value = ")";
-            if (!isBullet && levelProps[j].Name.compareTo("ListFormat") == 0)
-                levelProps[j].Value = listFormat(levelIndex);
-
-            if (isBullet && levelProps[j].Name.compareTo("BulletChar") == 0)
-                levelProps[j].Value = "\u2014";
+            Object value = action.apply(levelIndex, isBullet);
+            if (value != null && !value.equals(p.Value)) {
+                p.Value = value;
+                changed = true;
+            }
         }
+
+        return changed;
     }
 
-    private String listFormat(int levelIndex) {
+    private static String listFormat(int levelIndex) {
         return String.format("%%%d%%)", levelIndex+1);
     }
 }
@@ -23,6 +23,7 @@ import com.sun.star.beans.XPropertySet;
 import com.sun.star.style.ParagraphAdjust;
 import com.sun.star.text.*;
 import com.sun.star.uno.UnoRuntime;
+import ru.danilakondr.templater.metrics.UnoCalls;
 
 /**
  * Выравниватель объектов.
@@ -30,13 +31,11 @@ import com.sun.star.uno.UnoRuntime;
  * @author Данила А. Кондратенко
  * @since 0.3.2
  */
-public class SingleObjectAligner implements TextDocument.ObjectProcessor<Object> {
+public class SingleObjectAligner implements TextDocument.ObjectProcessor<TextObject> {
     @Override
-    public void process(Object object, XTextDocument xDoc) {
+    public void process(TextObject object, XTextDocument xDoc) {
         try {
-            XTextContent xContent = UnoRuntime
-                    .queryInterface(XTextContent.class, object);
-            XTextRange xRange = xContent.getAnchor();
+            XTextRange xRange = object.getTextContent().getAnchor();
 
             if (xRange.getText() != xDoc.getText())
                 return;
@@ -47,8 +46,7 @@ public class SingleObjectAligner implements TextDocument.ObjectProcessor<Object>
 
             xCursor.gotoRange(xRange, true);
 
-            XPropertySet xCursorProps = UnoRuntime
-                    .queryInterface(XPropertySet.class, xCursor);
+            XPropertySet xCursorProps = UnoCalls.propertySet(xCursor);
 
             try {
                 String numStyle = (String)xCursorProps.getPropertyValue("NumberingStyleName");
@@ -59,10 +57,7 @@ public class SingleObjectAligner implements TextDocument.ObjectProcessor<Object>
                 e.printStackTrace(System.err);
             }
 
-            XPropertySet xContentProps = UnoRuntime
-                    .queryInterface(XPropertySet.class, xContent);
-
-            xContentProps.setPropertyValue("AnchorType", TextContentAnchorType.AS_CHARACTER);
+            object.getPropertySet().setPropertyValue("AnchorType", TextContentAnchorType.AS_CHARACTER);
 
             xCursorProps.setPropertyValue("ParaAdjust", ParagraphAdjust.CENTER);
             xCursorProps.setPropertyValue("ParaFirstLineIndent", 0);
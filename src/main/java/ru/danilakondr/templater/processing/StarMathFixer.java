@@ -23,7 +23,6 @@ import org.apache.commons.text.StringEscapeUtils;
 
 import java.util.Arrays;
 import java.util.Map;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -34,120 +33,71 @@ import java.util.regex.Pattern;
  * с одного из концов у оператора не хватает выражения.
  * <p>
  * Язык StarMath, используемый в LibreOffice, достаточно прост,
- * поэтому были использованы регулярные выражения.
+ * поэтому были использованы регулярные выражения. Начиная с версии 0.7.0
+ * формулы обрабатываются за два прохода классом {@link StarMathRewriter},
+ * здесь остались таблицы замен.
  *
  * @author Данила А. Кондратенко
  * @since 0.2.3
  */
 public class StarMathFixer {
-    /**
-     * Регулярное выражение для обрыва выражения слева
-     */
-    private static final Pattern left = Pattern.compile("([#{])\\s*([*/&|=<>]|cdot|times|div)");
-    /**
-     * Регулярное выражение для обрыва выражения справа
-     */
-    private static final Pattern right = Pattern.compile("([\\\\+\\-/&|=<>]|cdot|times|div|plusminus|minusplus)\\s*([#}])");
-
     private static class ReplacePair {
         public final Pattern a;
         public final String b;
+        /**
+         * Диакритический знак, без которого выражение не может совпасть.
+         */
+        public final char accent;
 
-
-        private ReplacePair(Pattern a, String b) {
-            this.a = a;
-            this.b = b;
+        private ReplacePair(char accent, String name) {
+            this.a = Pattern.compile("(\\s*.{1,2}\\s*)csup\\s*" + Pattern.quote(String.valueOf(accent)));
+            this.b = "\\{" + name + " $1\\}";
+            this.accent = accent;
         }
     }
 
     private static final ReplacePair[] accentsReplacement = new ReplacePair[]{
-            new ReplacePair(Pattern.compile("(\\s*.{1,2}\\s*)csup\\s*\\u0300"), "\\{grave $1\\}"),
-            new ReplacePair(Pattern.compile("(\\s*.{1,2}\\s*)csup\\s*\\u0301"), "\\{acute $1\\}"),
-            new ReplacePair(Pattern.compile("(\\s*.{1,2}\\s*)csup\\s*\\u0302"), "\\{hat $1\\}"),
-            new ReplacePair(Pattern.compile("(\\s*.{1,2}\\s*)csup\\s*\\u0303"), "\\{tilde $1\\}"),
-            new ReplacePair(Pattern.compile("(\\s*.{1,2}\\s*)csup\\s*\\u0304"), "\\{bar $1\\}"),
-            new ReplacePair(Pattern.compile("(\\s*.{1,2}\\s*)csup\\s*\\u0305"), "\\{widebar $1\\}"),
-            new ReplacePair(Pattern.compile("(\\s*.{1,2}\\s*)csup\\s*\\u0306"), "\\{breve $1\\}"),
-            new ReplacePair(Pattern.compile("(\\s*.{1,2}\\s*)csup\\s*\\u0307"), "\\{dot $1\\}"),
-            new ReplacePair(Pattern.compile("(\\s*.{1,2}\\s*)csup\\s*\\u0308"), "\\{ddot $1\\}"),
-            new ReplacePair(Pattern.compile("(\\s*.{1,2}\\s*)csup\\s*\\u030A"), "\\{circle $1\\}"),
-            new ReplacePair(Pattern.compile("(\\s*.{1,2}\\s*)csup\\s*\\u030C"), "\\{check $1\\}"),
-            new ReplacePair(Pattern.compile("(\\s*.{1,2}\\s*)csup\\s*\\u035E"), "\\{overline $1\\}"),
-            new ReplacePair(Pattern.compile("(\\s*.{1,2}\\s*)csup\\s*\\u035F"), "\\{underline $1\\}"),
-            new ReplacePair(Pattern.compile("(\\s*.{1,2}\\s*)csup\\s*\\u0360"), "\\{widetilde $1\\}"),
-    };
-
-    private static final ReplacePair[] bracesReplacement = new ReplacePair[] {
-            new ReplacePair(Pattern.compile("left\\s+mline"), "left lline"),
-            new ReplacePair(Pattern.compile("right\\s+mline"), "right rline"),
+            new ReplacePair('\u0300', "grave"),
+            new ReplacePair('\u0301', "acute"),
+            new ReplacePair('\u0302', "hat"),
+            new ReplacePair('\u0303', "tilde"),
+            new ReplacePair('\u0304', "bar"),
+            new ReplacePair('\u0305', "widebar"),
+            new ReplacePair('\u0306', "breve"),
+            new ReplacePair('\u0307', "dot"),
+            new ReplacePair('\u0308', "ddot"),
+            new ReplacePair('\u030A', "circle"),
+            new ReplacePair('\u030C', "check"),
+            new ReplacePair('\u035E', "overline"),
+            new ReplacePair('\u035F', "underline"),
+            new ReplacePair('\u0360', "widetilde"),
     };
 
     /**
      * Обрабочик одной формулы на языке StarMath.
      *
      * @param formula формула, которую нужно исправить
+     * @see StarMathRewriter
      */
     public static String fixFormula(String formula) {
-        String f = formula;
-
-        f = fixAccents(f);
-        f = fixBraces(f);
-        f = fixCharacters(f);
-        f = fixOperators(f);
-
-        return f;
-    }
-
-    private static String fixOperators(String formula) {
-        String f = formula;
-
-        f = left.matcher(f).replaceAll("$1 {} $2");
-        f = right.matcher(f).replaceAll("$1 {} $2");
-
-        return f;
+        return StarMathRewriter.rewrite(formula);
     }
 
-    private static String fixCharacters(String formula) {
-        StringBuilder f = new StringBuilder();
-        Pattern symbol = Pattern.compile("([\\u0370-\\u03FF]|[\\u2200-\\u22FF]|[\\x{1D400}-\\x{1D7FF}])");
-        Matcher m = symbol.matcher(formula);
-
-        while (m.find()) {
-            if (m.group(1) != null) {
-                String a = m.group(1);
-                String b = symbolReplacement.getOrDefault(a, "$0");
-
-                m.appendReplacement(f, b);
-            }
-            else {
-                m.appendReplacement(f, "$0");
-            }
-        }
-        m.appendTail(f);
-
-        return f.toString();
-    }
-
-    private static String fixBraces(String f) {
-        String x = f;
-
-        for (ReplacePair p : bracesReplacement) {
-            x = p.a.matcher(x).replaceAll(p.b);
-        }
-        return x;
-    }
-
-    private static String fixAccents(String f) {
+    /**
+     * Исправляет диакритические знаки, записанные через <code>csup</code>.
+     */
+    static String fixAccents(String f) {
         String x = f;
 
         for (ReplacePair p : accentsReplacement) {
-            x = p.a.matcher(x).replaceAll(p.b);
+            if (x.indexOf(p.accent) >= 0)
+                x = p.a.matcher(x).replaceAll(p.b);
         }
 
         return x;
     }
 
-    private static final Map<String, String> symbolReplacement = Map.<String, String>ofEntries(
+    static final Map<String, String> symbolReplacement = Map.<String, String>ofEntries(
             Map.entry(Character.toString(913), "%ALPHA"),
             Map.entry(Character.toString(914), "%BETA"),
             Map.entry(Character.toString(915), "%GAMMA"),
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.processing;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Механизм исправления формул StarMath без цепочки регулярных выражений.
+ * Результат совпадает с результатом прежней реализации
+ * {@link StarMathFixer} посимвольно.
+ * <p>
+ * Формула обрабатывается за два прохода по буферу, который используется
+ * повторно в пределах потока:
+ * <ol>
+ *     <li>исправление скобок (<code>left mline</code>,
+ *     <code>right mline</code>), замена символов и исправление обрыва
+ *     выражения слева от оператора;</li>
+ *     <li>исправление обрыва выражения справа от оператора. Этот проход
+ *     отделён от первого, потому что он применяется к результату первого:
+ *     одна и та же скобка или <code>#</code> может завершать одно исправление
+ *     и начинать другое.</li>
+ * </ol>
+ * Исправление диакритических знаков (<code>csup</code>) выполняется
+ * прежними регулярными выражениями: каждое из них применяется к результату
+ * предыдущего и может захватить текст, вставленный предыдущим. Они
+ * запускаются только в том случае, если в формуле есть <code>csup</code> и
+ * соответствующий знак, поэтому для обычных формул эти проходы пропускаются.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public final class StarMathRewriter {
+    /**
+     * Буферы большего размера не сохраняются между вызовами.
+     */
+    private static final int MAX_RETAINED_CAPACITY = 1 << 16;
+
+    private static final ThreadLocal<StringBuilder[]> buffers = ThreadLocal
+            .withInitial(() -> new StringBuilder[] {new StringBuilder(), new StringBuilder()});
+
+    private static final int GREEK_FIRST = 0x0370;
+    private static final int GREEK_LAST = 0x03FF;
+    private static final int MATH_OPERATORS_FIRST = 0x2200;
+    private static final int MATH_OPERATORS_LAST = 0x22FF;
+    private static final int MATH_ALPHANUMERIC_FIRST = 0x1D400;
+    private static final int MATH_ALPHANUMERIC_LAST = 0x1D7FF;
+
+    private static final String[] greek = new String[GREEK_LAST - GREEK_FIRST + 1];
+    private static final String[] mathOperators = new String[MATH_OPERATORS_LAST - MATH_OPERATORS_FIRST + 1];
+    private static final String[] mathAlphanumeric = new String[MATH_ALPHANUMERIC_LAST - MATH_ALPHANUMERIC_FIRST + 1];
+
+    /**
+     * Символьные операторы, после которых исправляется обрыв выражения
+     * слева.
+     */
+    private static final String LEFT_OPERATOR_CHARS = "*/&|=<>";
+    private static final String[] LEFT_OPERATOR_WORDS = {"cdot", "times", "div"};
+
+    /**
+     * Символьные операторы, перед которыми исправляется обрыв выражения
+     * справа.
+     */
+    private static final String RIGHT_OPERATOR_CHARS = "\\+-/&|=<>";
+    private static final String[] RIGHT_OPERATOR_WORDS = {"cdot", "times", "div", "plusminus", "minusplus"};
+
+    static {
+        for (Map.Entry<String, String> e : StarMathFixer.symbolReplacement.entrySet()) {
+            int cp = e.getKey().codePointAt(0);
+            // Замена вычисляется так же, как в Matcher.appendReplacement()
+            String value = Pattern.compile("(" + Pattern.quote(e.getKey()) + ")")
+                    .matcher(e.getKey())
+                    .replaceAll(e.getValue());
+
+            String[] table = tableOf(cp);
+            if (table != null)
+                table[cp - firstOf(cp)] = value;
+        }
+    }
+
+    private StarMathRewriter() {}
+
+    private static String[] tableOf(int cp) {
+        if (cp >= GREEK_FIRST && cp <= GREEK_LAST)
+            return greek;
+        if (cp >= MATH_OPERATORS_FIRST && cp <= MATH_OPERATORS_LAST)
+            return mathOperators;
+        if (cp >= MATH_ALPHANUMERIC_FIRST && cp <= MATH_ALPHANUMERIC_LAST)
+            return mathAlphanumeric;
+        return null;
+    }
+
+    private static int firstOf(int cp) {
+        if (cp <= GREEK_LAST)
+            return GREEK_FIRST;
+        if (cp <= MATH_OPERATORS_LAST)
+            return MATH_OPERATORS_FIRST;
+        return MATH_ALPHANUMERIC_FIRST;
+    }
+
+    /**
+     * Исправляет формулу.
+     *
+     * @param formula формула на языке StarMath
+     * @return исправленная формула
+     */
+    public static String rewrite(String formula) {
+        String f = formula;
+        if (f.contains("csup"))
+            f = StarMathFixer.fixAccents(f);
+
+        StringBuilder[] b = buffers.get();
+        try {
+            f = rewriteLeft(f, b[0]);
+            return rewriteRight(f, b[1]);
+        }
+        finally {
+            for (int i = 0; i < b.length; i++) {
+                if (b[i].capacity() > MAX_RETAINED_CAPACITY)
+                    b[i] = new StringBuilder();
+            }
+        }
+    }
+
+    private static boolean isSpace(char c) {
+        // То же, что \s в регулярных выражениях Java
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private static int skipSpaces(String s, int i) {
+        while (i < s.length() && isSpace(s.charAt(i)))
+            i++;
+        return i;
+    }
+
+    /**
+     * Возвращает длину слова из списка, которое начинается в позиции
+     * <code>i</code>, или 0.
+     */
+    private static int matchWord(String s, int i, String[] words) {
+        for (String w : words) {
+            if (s.startsWith(w, i))
+                return w.length();
+        }
+        return 0;
+    }
+
+    /**
+     * Возвращает длину оператора, который начинается в позиции
+     * <code>i</code>, или 0.
+     */
+    private static int matchOperator(String s, int i, String chars, String[] words) {
+        if (i >= s.length())
+            return 0;
+        if (chars.indexOf(s.charAt(i)) >= 0)
+            return 1;
+        return matchWord(s, i, words);
+    }
+
+    /**
+     * Проверяет, начинается ли в позиции <code>i</code> конструкция
+     * <code>keyword\s+mline</code>, и возвращает позицию её конца или -1.
+     */
+    private static int matchMline(String s, int i, String keyword) {
+        if (!s.startsWith(keyword, i))
+            return -1;
+
+        int j = i + keyword.length();
+        int k = skipSpaces(s, j);
+        if (k == j || !s.startsWith("mline", k))
+            return -1;
+
+        return k + "mline".length();
+    }
+
+    /**
+     * Первый проход: скобки, символы и обрыв выражения слева.
+     */
+    private static String rewriteLeft(String s, StringBuilder out) {
+        out.setLength(0);
+        boolean changed = false;
+        int n = s.length();
+        int i = 0;
+
+        while (i < n) {
+            char c = s.charAt(i);
+
+            if (c == 'l' || c == 'r') {
+                int end = matchMline(s, i, c == 'l' ? "left" : "right");
+                if (end >= 0) {
+                    out.append(c == 'l' ? "left lline" : "right rline");
+                    changed = true;
+                    i = end;
+                    continue;
+                }
+            }
+            else if (c == '#' || c == '{') {
+                int j = skipSpaces(s, i + 1);
+                int len = matchOperator(s, j, LEFT_OPERATOR_CHARS, LEFT_OPERATOR_WORDS);
+                if (len > 0) {
+                    out.append(c).append(" {} ").append(s, j, j + len);
+                    changed = true;
+                    i = j + len;
+                    continue;
+                }
+            }
+            else if (c >= GREEK_FIRST) {
+                int cp = s.codePointAt(i);
+                String[] table = tableOf(cp);
+                if (table != null) {
+                    String value = table[cp - firstOf(cp)];
+                    int len = Character.charCount(cp);
+                    if (value != null) {
+                        out.append(value);
+                        changed = true;
+                    }
+                    else {
+                        out.append(s, i, i + len);
+                    }
+                    i += len;
+                    continue;
+                }
+            }
+
+            out.append(c);
+            i++;
+        }
+
+        return changed ? out.toString() : s;
+    }
+
+    /**
+     * Второй проход: обрыв выражения справа.
+     */
+    private static String rewriteRight(String s, StringBuilder out) {
+        out.setLength(0);
+        boolean changed = false;
+        int n = s.length();
+        int i = 0;
+
+        while (i < n) {
+            int len = matchOperator(s, i, RIGHT_OPERATOR_CHARS, RIGHT_OPERATOR_WORDS);
+            if (len > 0) {
+                int j = skipSpaces(s, i + len);
+                if (j < n && (s.charAt(j) == '#' || s.charAt(j) == '}')) {
+                    out.append(s, i, i + len).append(" {} ").append(s.charAt(j));
+                    changed = true;
+                    i = j + 1;
+                    continue;
+                }
+            }
+
+            out.append(s.charAt(i));
+            i++;
+        }
+
+        return changed ? out.toString() : s;
+    }
+}
@@ -28,6 +28,7 @@ import com.sun.star.text.XTextRange;
 import com.sun.star.text.XTextSection;
 import com.sun.star.text.XTextTable;
 import com.sun.star.uno.UnoRuntime;
+import ru.danilakondr.templater.metrics.UnoCalls;
 
 /**
  * Установщик стилей таблиц.
@@ -42,8 +43,7 @@ public class TableStyleSetter implements TextDocument.ObjectProcessor<XTextTable
         if (isNotToBeProcessed(xTable))
             return;
 
-        XPropertySet xTableProp = UnoRuntime
-                .queryInterface(XPropertySet.class, xTable);
+        XPropertySet xTableProp = UnoCalls.propertySet(xTable);
         TableBorder tableBorder = new TableBorder();
 
         tableBorder.HorizontalLine = new BorderLine();
@@ -79,8 +79,7 @@ public class TableStyleSetter implements TextDocument.ObjectProcessor<XTextTable
 
     private boolean isNotToBeProcessed(XTextTable xTable) {
         XTextRange xTableRange = xTable.getAnchor();
-        XPropertySet xTableRangeProp = UnoRuntime
-                .queryInterface(XPropertySet.class, xTableRange);
+        XPropertySet xTableRangeProp = UnoCalls.propertySet(xTableRange);
         try {
             XTextSection xSection = UnoRuntime
                     .queryInterface(XTextSection.class,
@@ -19,19 +19,28 @@
 
 package ru.danilakondr.templater.processing;
 
+import com.sun.star.beans.PropertyValue;
 import com.sun.star.beans.XPropertySet;
 import com.sun.star.container.*;
-import com.sun.star.document.XEmbeddedObjectSupplier2;
-import com.sun.star.embed.EmbedUpdateModes;
-import com.sun.star.embed.XEmbeddedObject;
+import com.sun.star.frame.XController;
+import com.sun.star.style.XStyleFamiliesSupplier;
 import com.sun.star.text.*;
+import com.sun.star.uno.AnyConverter;
 import com.sun.star.uno.Exception;
 import com.sun.star.uno.UnoRuntime;
+import com.sun.star.util.XPropertyReplace;
+import com.sun.star.util.XSearchDescriptor;
+import com.sun.star.util.XSearchable;
+import ru.danilakondr.templater.metrics.UnoCalls;
 import ru.danilakondr.templater.progress.ProgressInformer;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -54,8 +63,12 @@ public class TextDocument {
      * Список всех формул в документе. Должен инициализироваться при первом
      * вызове метода processFormulas().
      */
-    private final HashMap<String, Object> formulas;
+    private final HashMap<String, TextObject> formulas;
     private final HashMap<String, XTextTable> tables;
+    /**
+     * Статистика документа, которая заполняется при обходах объектов.
+     */
+    private final DocumentStatistics statistics;
 
     /**
      * Интерфейс-обработчик объектов.
@@ -64,12 +77,42 @@ public class TextDocument {
     @FunctionalInterface
     public interface ObjectProcessor<T> {
         void process(T object, XTextDocument xDoc);
+
+        /**
+         * Объединяет обработчики в цепочку, которая применяет их к объекту
+         * по порядку. Так все обработчики выполняются за один обход
+         * объектов документа.
+         *
+         * @param processors обработчики в порядке применения
+         * @return цепочка обработчиков
+         * @param <T> тип объекта
+         * @since 0.7.0
+         */
+        static <T> ObjectProcessor<T> chain(List<ObjectProcessor<T>> processors) {
+            return (object, xDoc) -> {
+                for (ObjectProcessor<T> p : processors)
+                    p.process(object, xDoc);
+            };
+        }
     }
 
     public TextDocument(XTextDocument xDoc) {
         this.xDoc = xDoc;
         this.formulas = new HashMap<>();
         this.tables = new HashMap<>();
+        this.statistics = new DocumentStatistics();
+    }
+
+    /**
+     * Возвращает статистику документа. Число формул, изображений и таблиц
+     * заполняется при их обработке, число рисунков &mdash; при обходе
+     * абзацев обработчиком {@link DocumentStatistics#paragraphCounter()}.
+     *
+     * @return статистика документа
+     * @since 0.7.0
+     */
+    public DocumentStatistics getStatistics() {
+        return statistics;
     }
 
     /**
@@ -95,21 +138,13 @@ public class TextDocument {
         String[] elementNames = embeddedObjects.getElementNames();
 
         for (String objId : elementNames) {
-            Object oFormula = embeddedObjects.getByName(objId);
-            XPropertySet xFormulaObject = UnoRuntime.queryInterface(
-                    XPropertySet.class,
-                    oFormula
-            );
-
-            String guid = (String) xFormulaObject.getPropertyValue("CLSID");
-            if (guid.equalsIgnoreCase(MATH_FORMULA_GUID)) {
-                XEmbeddedObject xExt = UnoRuntime
-                        .queryInterface(XEmbeddedObjectSupplier2.class, xFormulaObject)
-                        .getExtendedControlOverEmbeddedObject();
-                formulas.put(objId, oFormula);
-                xExt.setUpdateMode(EmbedUpdateModes.ALWAYS_UPDATE);
-            }
+            TextObject formula = new TextObject(objId, embeddedObjects.getByName(objId));
+
+            String guid = (String) formula.getPropertySet().getPropertyValue("CLSID");
+            if (guid.equalsIgnoreCase(MATH_FORMULA_GUID))
+                formulas.put(objId, formula);
         }
+        statistics.set(DocumentStatistics.FORMULAS, formulas.size());
     }
 
     /**
@@ -139,8 +174,7 @@ public class TextDocument {
         HashSet<String> toRemove = new HashSet<>();
         for (Map.Entry<String, XTextTable> f : allTables.entrySet()) {
             XTextRange xTableRange = f.getValue().getAnchor();
-            XPropertySet xTableRangeProp = UnoRuntime
-                    .queryInterface(XPropertySet.class, xTableRange);
+            XPropertySet xTableRangeProp = UnoCalls.propertySet(xTableRange);
             XTextSection xSection = UnoRuntime
                     .queryInterface(XTextSection.class,
                             xTableRangeProp.getPropertyValue("TextSection"));
@@ -158,6 +192,17 @@ public class TextDocument {
                 continue;
             tables.put(x, allTables.get(x));
         }
+
+        // Таблицы с подписями находятся в секциях, начинающихся с tbl:
+        int captioned = 0;
+        XNameAccess xSections = UnoRuntime
+                .queryInterface(XTextSectionsSupplier.class, xDoc)
+                .getTextSections();
+        for (String objId : xSections.getElementNames()) {
+            if (objId.startsWith("tbl:"))
+                captioned++;
+        }
+        statistics.set(DocumentStatistics.TABLES, captioned);
     }
 
     /**
@@ -181,32 +226,155 @@ public class TextDocument {
         }
     }
 
+    /**
+     * Обрабатывает все абзацы цепочкой обработчиков за один обход.
+     *
+     * @param processors обработчики абзаца в порядке применения
+     * @param progress счётчик прогресса
+     * @since 0.7.0
+     */
+    public void processParagraphs(List<ObjectProcessor<XTextContent>> processors, ProgressInformer progress) throws Exception {
+        processParagraphs(ObjectProcessor.chain(processors), progress);
+    }
+
+    /**
+     * Обрабатывает только абзацы списков. В отличие от
+     * {@link TextDocument#processParagraphs(ObjectProcessor, ProgressInformer)},
+     * не перебирает все абзацы документа: сначала перебираются правила
+     * нумерации документа ({@link XNumberingRulesSupplier}), затем абзацы
+     * каждого правила находятся поиском по атрибуту
+     * <code>NumberingStyleName</code>. Правила нумерации включают и
+     * именованные стили списков, и автоматические (например, списки,
+     * созданные Pandoc в формате ODT).
+     *
+     * @param processor обработчик абзаца
+     * @param progress счётчик прогресса
+     * @since 0.7.0
+     */
+    public void processListParagraphs(ObjectProcessor<XTextContent> processor, ProgressInformer progress) throws Exception {
+        XIndexAccess rules = UnoRuntime
+                .queryInterface(XNumberingRulesSupplier.class, xDoc)
+                .getNumberingRules();
+        XSearchable xSearchable = UnoRuntime.queryInterface(XSearchable.class, xDoc);
+
+        Set<String> ruleNames = new LinkedHashSet<>();
+        for (int r = 0; r < rules.getCount(); r++) {
+            XNamed xNamed = UnoRuntime.queryInterface(XNamed.class, rules.getByIndex(r));
+            if (xNamed != null)
+                ruleNames.add(xNamed.getName());
+        }
+
+        int i = 0;
+        for (String styleName : ruleNames) {
+            if (styleName.isEmpty() || styleName.equals("Outline"))
+                continue;
+
+            XSearchDescriptor xDesc = xSearchable.createSearchDescriptor();
+            PropertyValue attribute = new PropertyValue();
+            attribute.Name = "NumberingStyleName";
+            attribute.Value = styleName;
+            UnoRuntime.queryInterface(XPropertyReplace.class, xDesc)
+                    .setSearchAttributes(new PropertyValue[] {attribute});
+            xDesc.setSearchString("");
+
+            XIndexAccess found = xSearchable.findAll(xDesc);
+            for (int k = 0; k < found.getCount(); k++) {
+                XEnumeration xEnum = UnoRuntime
+                        .queryInterface(XEnumerationAccess.class, found.getByIndex(k))
+                        .createEnumeration();
+                while (xEnum.hasMoreElements()) {
+                    XTextContent xParagraph = UnoRuntime
+                            .queryInterface(XTextContent.class, xEnum.nextElement());
+
+                    progress.inform(++i, -1);
+                    processor.process(xParagraph, xDoc);
+                }
+            }
+        }
+    }
+
+    /**
+     * Подсчитывает абзацы с заданным стилем поиском по стилю, без перебора
+     * всех абзацев документа. Как и при переборе абзацев
+     * ({@link #processParagraphs}), учитываются только абзацы основного
+     * текста, а не таблиц, врезок и колонтитулов.
+     *
+     * @param styleName имя стиля абзаца (не отображаемое имя)
+     * @return число абзацев
+     * @since 0.7.0
+     */
+    public int countParagraphsWithStyle(String styleName) throws Exception {
+        XNameAccess paragraphStyles = UnoRuntime.queryInterface(XNameAccess.class,
+                UnoRuntime.queryInterface(XStyleFamiliesSupplier.class, xDoc)
+                        .getStyleFamilies()
+                        .getByName("ParagraphStyles"));
+        if (!paragraphStyles.hasByName(styleName))
+            return 0;
+
+        // Поиск по стилю сравнивает отображаемые имена стилей
+        String displayName = AnyConverter.toString(UnoCalls
+                .propertySet(paragraphStyles.getByName(styleName))
+                .getPropertyValue("DisplayName"));
+
+        XSearchable xSearchable = UnoRuntime.queryInterface(XSearchable.class, xDoc);
+        XSearchDescriptor xDesc = xSearchable.createSearchDescriptor();
+        xDesc.setPropertyValue("SearchStyles", true);
+        xDesc.setSearchString(displayName);
+
+        XIndexAccess found = xSearchable.findAll(xDesc);
+        XText xBodyText = xDoc.getText();
+        int count = 0;
+        for (int i = 0; i < found.getCount(); i++) {
+            XTextRange xRange = UnoRuntime.queryInterface(XTextRange.class, found.getByIndex(i));
+            if (!UnoRuntime.areSame(xRange.getText(), xBodyText))
+                continue;
+
+            String name = AnyConverter.toString(UnoCalls.propertySet(xRange).getPropertyValue("ParaStyleName"));
+            if (name.equals(styleName))
+                count++;
+        }
+        return count;
+    }
+
     /**
      * Обрабатывает все изображения по порядку.
      *
      * @param processor обработчик изображения
      * @param progress счётчик прогресса
      */
-    public void processImages(ObjectProcessor<Object> processor, ProgressInformer progress) throws Exception {
+    public void processImages(ObjectProcessor<TextObject> processor, ProgressInformer progress) throws Exception {
         XNameAccess graphicObjects = UnoRuntime
                 .queryInterface(XTextGraphicObjectsSupplier.class, xDoc)
                 .getGraphicObjects();
         String[] names = graphicObjects.getElementNames();
+        statistics.set(DocumentStatistics.IMAGES, names.length);
 
         int i = 0;
         for (String objId : names) {
             progress.inform(++i, names.length);
-            processor.process(graphicObjects.getByName(objId), xDoc);
+            processor.process(new TextObject(objId, graphicObjects.getByName(objId)), xDoc);
         }
     }
 
+    /**
+     * Обрабатывает все изображения цепочкой обработчиков за один обход:
+     * к каждому изображению по порядку применяются все обработчики.
+     *
+     * @param processors обработчики изображения в порядке применения
+     * @param progress счётчик прогресса
+     * @since 0.7.0
+     */
+    public void processImages(List<ObjectProcessor<TextObject>> processors, ProgressInformer progress) throws Exception {
+        processImages(ObjectProcessor.chain(processors), progress);
+    }
+
     /**
      * Обрабатывает все формулы по порядку.
      *
      * @param processor обработчик формулы
      * @param progress счётчик прогресса
      */
-    public void processFormulas(ObjectProcessor<Object> processor, ProgressInformer progress) throws Exception {
+    public void processFormulas(ObjectProcessor<TextObject> processor, ProgressInformer progress) throws Exception {
         if (formulas.isEmpty())
             scanAllFormulas();
 
@@ -217,6 +385,20 @@ public class TextDocument {
         });
     }
 
+    /**
+     * Исправляет все формулы пакетным обработчиком.
+     *
+     * @param fixer пакетный обработчик формул
+     * @param progress счётчик прогресса
+     * @since 0.7.0
+     */
+    public void fixFormulas(MathFormulaBatchFixer fixer, ProgressInformer progress) throws Exception {
+        if (formulas.isEmpty())
+            scanAllFormulas();
+
+        fixer.fix(formulas.values(), progress);
+    }
+
     public void processTables(ObjectProcessor<XTextTable> processor, ProgressInformer progress) throws Exception {
         if (tables.isEmpty())
             scanAllTables();
@@ -228,6 +410,89 @@ public class TextDocument {
         });
     }
 
+    /**
+     * Возвращает имена всех встроенных объектов документа (в том числе
+     * формул).
+     *
+     * @return множество имён объектов
+     * @since 0.7.0
+     */
+    public Set<String> getEmbeddedObjectNames() {
+        XNameAccess embeddedObjects = UnoRuntime
+                .queryInterface(XTextEmbeddedObjectsSupplier.class, xDoc)
+                .getEmbeddedObjects();
+        return new HashSet<>(Arrays.asList(embeddedObjects.getElementNames()));
+    }
+
+    /**
+     * Возвращает имена всех изображений документа.
+     *
+     * @return множество имён изображений
+     * @since 0.7.0
+     */
+    public Set<String> getGraphicObjectNames() {
+        XNameAccess graphicObjects = UnoRuntime
+                .queryInterface(XTextGraphicObjectsSupplier.class, xDoc)
+                .getGraphicObjects();
+        return new HashSet<>(Arrays.asList(graphicObjects.getElementNames()));
+    }
+
+    /**
+     * Обрабатывает формулы, которых не было в документе на момент вызова
+     * {@link TextDocument#getEmbeddedObjectNames()}. Используется для
+     * обработки формул только из вставленного документа.
+     *
+     * @param processor обработчик формулы
+     * @param known имена объектов, которые нужно пропустить
+     * @param progress счётчик прогресса
+     * @since 0.7.0
+     */
+    public void processNewFormulas(ObjectProcessor<TextObject> processor, Set<String> known, ProgressInformer progress) throws Exception {
+        XNameAccess embeddedObjects = UnoRuntime
+                .queryInterface(XTextEmbeddedObjectsSupplier.class, xDoc)
+                .getEmbeddedObjects();
+        String[] names = embeddedObjects.getElementNames();
+
+        int i = 0;
+        for (String objId : names) {
+            if (known.contains(objId))
+                continue;
+
+            TextObject formula = new TextObject(objId, embeddedObjects.getByName(objId));
+            String guid = (String) formula.getPropertySet().getPropertyValue("CLSID");
+            if (!guid.equalsIgnoreCase(MATH_FORMULA_GUID))
+                continue;
+
+            progress.inform(++i, -1);
+            processor.process(formula, xDoc);
+        }
+    }
+
+    /**
+     * Обрабатывает изображения, которых не было в документе на момент
+     * вызова {@link TextDocument#getGraphicObjectNames()}.
+     *
+     * @param processor обработчик изображения
+     * @param known имена изображений, которые нужно пропустить
+     * @param progress счётчик прогресса
+     * @since 0.7.0
+     */
+    public void processNewImages(ObjectProcessor<TextObject> processor, Set<String> known, ProgressInformer progress) throws Exception {
+        XNameAccess graphicObjects = UnoRuntime
+                .queryInterface(XTextGraphicObjectsSupplier.class, xDoc)
+                .getGraphicObjects();
+        String[] names = graphicObjects.getElementNames();
+
+        int i = 0;
+        for (String objId : names) {
+            if (known.contains(objId))
+                continue;
+
+            progress.inform(++i, -1);
+            processor.process(new TextObject(objId, graphicObjects.getByName(objId)), xDoc);
+        }
+    }
+
     /**
      * Обновляет все индексы в документе.
      */
@@ -253,4 +518,24 @@ public class TextDocument {
     public void updateAllIndexes() {
         updateAllIndexes((a, b) -> {});
     }
+
+    /**
+     * Возвращает число страниц документа. Если разметка страниц устарела,
+     * LibreOffice выполняет её заново.
+     *
+     * @return число страниц или 0, если его не удалось получить
+     * @since 0.7.0
+     */
+    public int getPageCount() {
+        try {
+            XController xController = xDoc.getCurrentController();
+            XPropertySet xCtrlProp = UnoCalls.propertySet(xController);
+
+            return AnyConverter
+                    .toInt(xCtrlProp.getPropertyValue("PageCount"));
+        }
+        catch (java.lang.Exception e) {
+            return 0;
+        }
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.processing;
+
+import com.sun.star.beans.XPropertySet;
+import com.sun.star.text.XTextContent;
+import com.sun.star.uno.UnoRuntime;
+import ru.danilakondr.templater.metrics.UnoCalls;
+
+/**
+ * Объект документа (формула или изображение) вместе с его интерфейсами.
+ * Интерфейсы запрашиваются у LibreOffice один раз, при первом обращении,
+ * и затем используются всеми обработчиками объекта.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class TextObject {
+    private final String name;
+    private final Object object;
+    private XPropertySet xProps;
+    private XTextContent xContent;
+
+    public TextObject(String name, Object object) {
+        this.name = name;
+        this.object = object;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Возвращает исходный объект UNO.
+     *
+     * @return объект UNO
+     */
+    public Object getObject() {
+        return object;
+    }
+
+    /**
+     * Возвращает набор свойств объекта. Набор свойств используется только
+     * для чтения и записи свойств (см. {@link UnoCalls#propertySet(Object)}).
+     *
+     * @return набор свойств
+     */
+    public XPropertySet getPropertySet() {
+        if (xProps == null)
+            xProps = UnoCalls.propertySet(object);
+        return xProps;
+    }
+
+    public XTextContent getTextContent() {
+        if (xContent == null)
+            xContent = UnoRuntime.queryInterface(XTextContent.class, object);
+        return xContent;
+    }
+}
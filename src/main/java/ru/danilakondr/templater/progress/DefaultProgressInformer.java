@@ -17,34 +17,260 @@
  * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
  */
 
+
 package ru.danilakondr.templater.progress;
 
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Счётчик процесса, выводящий сведения об этапах обработки в консоль.
+ * <p>
+ * Сведения о ходе этапа выводятся не чаще заданного числа раз в секунду:
+ * в терминале &mdash; в одной строке состояния, которая перезаписывается,
+ * иначе (например, при перенаправлении вывода в файл) &mdash; отдельными
+ * строками. Для этапов с известным числом элементов выводится оценка
+ * оставшегося времени, по завершении этапа &mdash; его длительность.
+ * <p>
+ * Кроме того, счётчик передаёт события {@link ProgressEvent} получателям
+ * {@link ProgressListener} с той же частотой, даже если вывод сообщений
+ * отключён.
+ *
+ * @author Данила А. Кондратенко
+ */
 public class DefaultProgressInformer implements ProgressInformer {
+    public static final double DEFAULT_RATE = 1;
+    public static final double DEFAULT_TERMINAL_RATE = 10;
+
     private String progressString;
     private boolean silent = false;
+    private PrintStream out = System.out;
+    private boolean inPlace = System.console() != null;
+    private long minInterval = interval(inPlace ? DEFAULT_TERMINAL_RATE : DEFAULT_RATE);
+    private String source;
+    private final List<ProgressListener> listeners = new ArrayList<>();
+
+    private boolean active = false;
+    private boolean announced = false;
+    private long phaseStart;
+    private long lastUpdate;
+    private int current = -1;
+    private int total = -1;
+    /**
+     * Длина строки состояния в терминале или 0, если её нет.
+     */
+    private int statusLength = 0;
 
     public DefaultProgressInformer(String progressString) {
         this.progressString = progressString;
     }
 
+    /**
+     * Завершает текущий этап и начинает новый.
+     *
+     * @param progressString название этапа
+     */
     public void setProgressString(String progressString) {
+        endPhase();
         this.progressString = progressString;
+        startPhase();
     }
 
     public void setSilent(boolean silent) {
         this.silent = silent;
     }
 
+    /**
+     * Устанавливает поток вывода. В заданный поток сведения выводятся
+     * отдельными строками, без строки состояния.
+     *
+     * @param out поток вывода
+     */
+    public void setOutput(PrintStream out) {
+        this.out = out;
+        this.inPlace = false;
+        setMaxRate(DEFAULT_RATE);
+    }
+
+    /**
+     * Устанавливает наибольшее число обновлений сведений о ходе этапа в
+     * секунду.
+     *
+     * @param perSecond число обновлений в секунду
+     * @since 0.7.0
+     */
+    public void setMaxRate(double perSecond) {
+        this.minInterval = interval(perSecond);
+    }
+
+    /**
+     * Устанавливает источник событий (например, имя обрабатываемого
+     * документа).
+     *
+     * @param source источник событий
+     * @since 0.7.0
+     */
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Добавляет получателя событий процесса обработки.
+     *
+     * @param listener получатель событий
+     * @since 0.7.0
+     */
+    public void addListener(ProgressListener listener) {
+        listeners.add(listener);
+    }
+
+    private static long interval(double perSecond) {
+        if (perSecond <= 0)
+            throw new IllegalArgumentException("Update rate must be positive");
+        return (long) (1e9 / perSecond);
+    }
+
+    /**
+     * Выводит произвольное сообщение, если вывод сообщений не отключён.
+     *
+     * @param message сообщение
+     * @since 0.7.0
+     */
+    public void message(String message) {
+        long now = System.nanoTime();
+        if (!silent) {
+            if (statusLength > 0) {
+                // Сообщение выводится над строкой состояния
+                out.print("\r" + " ".repeat(statusLength) + "\r");
+                statusLength = 0;
+                out.println(message);
+                print(progressString + counter(true, now) + "...", false);
+            }
+            else {
+                out.println(message);
+            }
+        }
+        emit(ProgressEvent.Type.MESSAGE, now, message);
+    }
+
     @Override
     public void inform(int current, int total) {
-        if (silent)
+        if (!active)
+            startPhase();
+
+        this.current = current;
+        this.total = total;
+
+        long now = System.nanoTime();
+        if (current == -1 && total == -1) {
+            if (!announced)
+                update(now);
+            return;
+        }
+
+        if (!announced || now - lastUpdate >= minInterval)
+            update(now);
+    }
+
+    /**
+     * Завершает текущий этап: выводит его итог и длительность.
+     *
+     * @since 0.7.0
+     */
+    public void finish() {
+        endPhase();
+    }
+
+    private void startPhase() {
+        active = true;
+        announced = false;
+        current = -1;
+        total = -1;
+        phaseStart = System.nanoTime();
+        lastUpdate = phaseStart;
+        emit(ProgressEvent.Type.PHASE_START, phaseStart, null);
+    }
+
+    private void endPhase() {
+        if (!active)
+            return;
+
+        long now = System.nanoTime();
+        if (!silent && announced && (inPlace || current >= 0))
+            print(String.format("%s%s done in %.1f s",
+                    progressString, counter(false, now), (now - phaseStart) / 1e9), true);
+        emit(ProgressEvent.Type.PHASE_END, now, null);
+
+        active = false;
+    }
+
+    private void update(long now) {
+        lastUpdate = now;
+        announced = true;
+
+        if (!silent)
+            print(progressString + counter(true, now) + "...", false);
+        emit(ProgressEvent.Type.PROGRESS, now, null);
+    }
+
+    /**
+     * Формирует сведения о числе обработанных элементов.
+     */
+    private String counter(boolean withEta, long now) {
+        if (current < 0)
+            return "";
+        if (total < 0)
+            return String.format(" (%d)", current);
+        if (!withEta)
+            return String.format(" (%d/%d)", current, total);
+
+        long eta = eta(now);
+        if (eta < 0)
+            return String.format(" (%d/%d)", current, total);
+        return String.format(" (%d/%d, ETA %d s)", current, total, (eta + 999999999) / 1000000000);
+    }
+
+    private long eta(long now) {
+        if (current <= 0 || total < current)
+            return -1;
+        return (now - phaseStart) * (total - current) / current;
+    }
+
+    /**
+     * Выводит строку: в терминале &mdash; на месте строки состояния.
+     *
+     * @param line строка
+     * @param last строка завершает этап
+     */
+    private void print(String line, boolean last) {
+        if (!inPlace) {
+            out.println(line);
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder("\r").append(line);
+        for (int i = line.length(); i < statusLength; i++)
+            sb.append(' ');
+        if (last) {
+            out.println(sb);
+            statusLength = 0;
+        }
+        else {
+            out.print(sb);
+            out.flush();
+            statusLength = line.length();
+        }
+    }
+
+    private void emit(ProgressEvent.Type type, long now, String message) {
+        if (listeners.isEmpty())
             return;
 
-        if (current == -1 && total == -1)
-            System.out.println(progressString + "...");
-        else if (total == -1)
-            System.out.printf("%s (%d)...%n", progressString, current);
-        else
-            System.out.printf("%s (%d/%d)...%n", progressString, current, total);
+        ProgressEvent event = new ProgressEvent(type, source, progressString,
+                current, total, now - phaseStart,
+                type == ProgressEvent.Type.PROGRESS ? eta(now) : -1, message);
+        for (ProgressListener l : listeners)
+            l.onProgress(event);
     }
-}
\ No newline at end of file
+}
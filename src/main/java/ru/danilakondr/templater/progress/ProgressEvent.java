@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ru.danilakondr.templater.progress;
+
+import org.apache.commons.text.StringEscapeUtils;
+
+import java.util.Locale;
+
+/**
+ * Событие процесса обработки для программ, которые следят за обработкой
+ * документа.
+ *
+ * @param type тип события
+ * @param source обрабатываемый документ или <code>null</code>
+ * @param phase название этапа
+ * @param current число обработанных элементов или -1, если оно неизвестно
+ * @param total общее число элементов или -1, если оно неизвестно
+ * @param elapsedNanos время от начала этапа в наносекундах
+ * @param etaNanos оценка оставшегося времени этапа в наносекундах или -1,
+ *                 если её нельзя вычислить
+ * @param message текст сообщения (только для {@link Type#MESSAGE})
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public record ProgressEvent(Type type, String source, String phase, int current, int total,
+                            long elapsedNanos, long etaNanos, String message) {
+    public enum Type {
+        PHASE_START,
+        PROGRESS,
+        PHASE_END,
+        MESSAGE
+    }
+
+    /**
+     * Возвращает событие в виде JSON-объекта.
+     *
+     * @return строка JSON
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"type\":\"").append(type.name().toLowerCase(Locale.ROOT).replace('_', '-')).append('"');
+        sb.append(",\"source\":").append(string(source));
+        sb.append(",\"phase\":").append(string(phase));
+        sb.append(",\"current\":").append(current);
+        sb.append(",\"total\":").append(total);
+        sb.append(",\"elapsedMs\":").append(millis(elapsedNanos));
+        sb.append(",\"etaMs\":").append(etaNanos < 0 ? "null" : millis(etaNanos));
+        if (message != null)
+            sb.append(",\"message\":").append(string(message));
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private static String string(String s) {
+        return s == null ? "null" : '"' + StringEscapeUtils.escapeJson(s) + '"';
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
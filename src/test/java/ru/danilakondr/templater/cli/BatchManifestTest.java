@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Разбор заданий в формате JSON.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class BatchManifestTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void parsedJobHasNoBaseDirectory() {
+        BatchJob job = BatchManifest.parseJob("{\"template\": \"t.odt\", \"main\": \"m.odt\", \"output\": \"o.odt\"}");
+
+        assertNull(job.getBaseDirectory());
+    }
+
+    @Test
+    public void parsesSingleLineJob() {
+        BatchJob job = BatchManifest.parseJob(
+                "{\"template\": \"t.odt\", \"main\": \"m.odt\", \"output\": \"o.odt\", \"pdf\": true}");
+
+        assertEquals("t.odt", job.getTemplatePath());
+        assertEquals("m.odt", job.getMainTextPath());
+        assertEquals("o.odt", job.getOutputPath());
+        assertNull(job.getMacroFile());
+        assertEquals(Boolean.TRUE, job.getShouldGeneratePDF());
+    }
+
+    @Test
+    public void parsesPrettyPrintedJob() {
+        BatchJob job = BatchManifest.parseJob("{\n"
+                + "  \"template\": \"t.odt\",\n"
+                + "  \"main\": \"m.odt\",\n"
+                + "  \"output\": \"o.odt\",\n"
+                + "  \"pdf\": true\n"
+                + "}\n");
+
+        assertEquals("o.odt", job.getOutputPath());
+        assertEquals(Boolean.TRUE, job.getShouldGeneratePDF());
+    }
+
+    @Test
+    public void parsesCRLFJob() {
+        BatchJob job = BatchManifest.parseJob("{\r\n\"template\": \"t.odt\",\r\n\"main\": \"m.odt\",\r\n"
+                + "\"output\": \"o.odt\",\r\n\"pdf\": false\r\n}");
+
+        assertEquals(Boolean.FALSE, job.getShouldGeneratePDF());
+    }
+
+    @Test
+    public void parsesLiteralsAndNull() {
+        Map<String, String> values = BatchManifest.parseJSONObject(
+                "{\"a\": 12, \"b\":false,\"c\" : null,\t\"d\": -1.5e3 }", 1);
+
+        assertEquals("12", values.get("a"));
+        assertEquals("false", values.get("b"));
+        assertFalse(values.containsKey("c"));
+        assertEquals("-1.5e3", values.get("d"));
+    }
+
+    @Test
+    public void parsesEscapes() {
+        Map<String, String> values = BatchManifest.parseJSONObject(
+                "{\"path\": \"C:\\\\docs\\\\\\\"a\\\" \\u0444\\t\"}", 1);
+
+        assertEquals("C:\\docs\\\"a\" ф\t", values.get("path"));
+    }
+
+    @Test
+    public void lowercasesKeys() {
+        Map<String, String> values = BatchManifest.parseJSONObject("{\"Template\": \"t.odt\"}", 1);
+
+        assertEquals("t.odt", values.get("template"));
+    }
+
+    @Test
+    public void parsesEmptyObject() {
+        assertTrue(BatchManifest.parseJSONObject(" { } ", 1).isEmpty());
+    }
+
+    @Test
+    public void rejectsMissingField() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> BatchManifest.parseJob("{\"template\": \"t.odt\", \"main\": \"m.odt\"}"));
+
+        assertTrue(e.getMessage().contains("output"), e.getMessage());
+    }
+
+    @Test
+    public void rejectsInvalidBoolean() {
+        assertThrows(IllegalArgumentException.class, () -> BatchManifest.parseJob(
+                "{\"template\": \"t.odt\", \"main\": \"m.odt\", \"output\": \"o.odt\", \"pdf\": maybe}"));
+    }
+
+    @Test
+    public void rejectsUnterminatedString() {
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchManifest.parseJSONObject("{\"template\": \"t.odt}", 1));
+    }
+
+    @Test
+    public void rejectsTrailingCharacters() {
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchManifest.parseJSONObject("{\"a\": 1} x", 1));
+    }
+
+    @Test
+    public void rejectsMissingValue() {
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchManifest.parseJSONObject("{\"a\": }", 1));
+    }
+
+    @Test
+    public void resolvesRelativePathsAgainstManifestDirectory() throws IOException {
+        Path manifest = dir.resolve("jobs.jsonl");
+        Files.writeString(manifest, "{\"template\": \"t.odt\", \"main\": \"in/m.odt\", "
+                + "\"output\": \"out/o.odt\", \"macros\": \"m.properties\"}\n", StandardCharsets.UTF_8);
+
+        List<BatchJob> jobs = BatchManifest.read(manifest.toString());
+
+        assertEquals(1, jobs.size());
+        assertEquals(dir.resolve("t.odt").toString(), jobs.get(0).getTemplatePath());
+        assertEquals(dir.resolve("in/m.odt").toString(), jobs.get(0).getMainTextPath());
+        assertEquals(dir.resolve("out/o.odt").toString(), jobs.get(0).getOutputPath());
+        assertEquals(dir.resolve("m.properties").toString(), jobs.get(0).getMacroFile());
+        assertEquals(dir.toFile(), jobs.get(0).getBaseDirectory());
+    }
+
+    @Test
+    public void keepsAbsolutePaths() throws IOException {
+        Path template = dir.resolve("templates").resolve("t.odt").toAbsolutePath();
+        Path manifest = dir.resolve("jobs.csv");
+        Files.writeString(manifest, "template,main,output\n"
+                + template + ",m.odt,o.odt\n", StandardCharsets.UTF_8);
+
+        List<BatchJob> jobs = BatchManifest.read(manifest.toString());
+
+        assertEquals(1, jobs.size());
+        assertEquals(template.toString(), jobs.get(0).getTemplatePath());
+        assertEquals(dir.resolve("m.odt").toString(), jobs.get(0).getMainTextPath());
+        assertNull(jobs.get(0).getMacroFile());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.macros;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Макросы времени и шаблоны <code>DATETIME(...)</code> по правилам
+ * {@link java.text.SimpleDateFormat}.
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class TimeMacrosTest {
+    /**
+     * Воскресенье, 3 января 2021 года, 21:05 по UTC+3.
+     */
+    private static final ZonedDateTime NOW = ZonedDateTime.of(2021, 1, 3, 21, 5, 0, 0, ZoneOffset.ofHours(3));
+
+    @Test
+    public void formatsYear() {
+        assertEquals("2021", new TimeMacros(NOW).lookup("YEAR"));
+    }
+
+    @Test
+    public void formatsPatternInTimeZoneOfSnapshot() {
+        assertEquals("03.01.2021 21:05", new TimeMacros(NOW).lookup("DATETIME(dd.MM.yyyy HH:mm)"));
+    }
+
+    @Test
+    public void keepsSimpleDateFormatLetters() {
+        TimeMacros macros = new TimeMacros(NOW);
+
+        // Номер дня недели, а не год, как в DateTimeFormatter
+        assertEquals("7", macros.lookup("DATETIME(u)"));
+        assertEquals("1", macros.lookup("DATETIME(F)"));
+        assertEquals("21 9", macros.lookup("DATETIME(k K)"));
+    }
+
+    @Test
+    public void ignoresOtherMacros() {
+        TimeMacros macros = new TimeMacros(NOW);
+
+        assertNull(macros.lookup("AUTHOR"));
+        assertNull(macros.lookup("DATETIME("));
+        assertTrue(macros.getValues().isEmpty());
+    }
+
+    @Test
+    public void rejectsInvalidPattern() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeMacros(NOW).lookup("DATETIME(b)"));
+    }
+}
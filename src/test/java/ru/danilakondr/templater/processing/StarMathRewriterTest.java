@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2024 Danila A. Kondratenko
+ *
+ * This file is a part of UNO Templater.
+ *
+ * UNO Templater is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UNO Templater is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with UNO Templater.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ru.danilakondr.templater.processing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Сравнение результатов {@link StarMathRewriter} с прежней реализацией на
+ * регулярных выражениях ({@link LegacyStarMathFixer}).
+ *
+ * @author Данила А. Кондратенко
+ * @since 0.7.0
+ */
+public class StarMathRewriterTest {
+    /**
+     * Типичные формулы, которые получаются при преобразовании документов
+     * Pandoc.
+     */
+    private static final String[] FORMULAS = {
+            "{ x = 1 }",
+            "{ stack { { f ( x ) } = { sum from { i = 1 } to { n } { a _ { i } x ^ { i } } } # "
+                    + "{ } = { a _ { 1 } x + a _ { 2 } x ^ { 2 } + dotsaxis + a _ { n } x ^ { n } } # "
+                    + "{ } cdot { { 1 } over { n } } - { left ( { x + y } right ) } # "
+                    + "{ } times { left mline { x } right mline } } }",
+            "{ { x } csup \u0302 + { y } csup \u0303 = { v } csup \u0304 cdot { t } csup \u0307 "
+                    + "- { a } csup \u0308 }",
+            "{ α + β = γ − Δ φ ( λ ) cdot "
+                    + "𝑥 _ { ω } + 𝜋 ∂ ψ over ∂ τ }",
+            "{ = x }",
+            "{ x - }",
+            "{ a # = b # c + }",
+    };
+
+    /**
+     * Фрагменты для случайных формул: операторы, скобки, пробелы, символы
+     * и диакритические знаки.
+     */
+    private static final String[] FRAGMENTS = {
+            "left", "right", "mline", "lef", " ", "  ", "\t", "\n", "\r", "#", "{", "}",
+            "=", "-", "+", "\\", "/", "*", "&", "|", "<", ">", "cdot", "times", "div",
+            "plusminus", "minusplus", "plus", "csup", "\u0300", "\u0302", "\u0360",
+            "α", "Α", "\u03F4", "\u037E", "∀", "∆", "∑",
+            "𝐀", "𝚹", "𝟿", "\uD835", "\uDC00",
+            "a", "x", "1", "l", "r", "m", "%", "$", "(", ")", "^", "_", "over", "newline",
+    };
+
+    private static final int RANDOM_FORMULAS = 100000;
+
+    @Test
+    public void matchesRegexImplementationOnTypicalFormulas() {
+        for (String f : FORMULAS)
+            assertEquals(LegacyStarMathFixer.fixFormula(f), StarMathRewriter.rewrite(f), f);
+    }
+
+    @Test
+    public void matchesRegexImplementationOnRandomFormulas() {
+        Random random = new Random(20240601);
+        for (int i = 0; i < RANDOM_FORMULAS; i++) {
+            StringBuilder sb = new StringBuilder();
+            int n = random.nextInt(30);
+            for (int j = 0; j < n; j++)
+                sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+
+            String f = sb.toString();
+            assertEquals(LegacyStarMathFixer.fixFormula(f), StarMathRewriter.rewrite(f), f);
+        }
+    }
+
+    @Test
+    public void keepsFormulaWithoutFixesUnchanged() {
+        String f = "{ a + b = c }";
+        assertSame(f, StarMathRewriter.rewrite(f));
+    }
+}